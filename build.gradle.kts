@@ -9,11 +9,98 @@ repositories {
     mavenCentral()
 }
 
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+tasks.register<JavaExec>("lexerBenchmark") {
+    group = "benchmark"
+    description = "Measures Lexer.lex() throughput in characters per second."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.LexerBenchmark")
+}
+
+tasks.register<JavaExec>("relexBenchmark") {
+    group = "benchmark"
+    description = "Compares Lexer.relex() after an edit at the start against a full lex as inputs grow."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.RelexBenchmark")
+}
+
+tasks.register<JavaExec>("lexerAllocationBenchmark") {
+    group = "benchmark"
+    description = "Measures bytes allocated per input when lexing small expressions."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.LexerAllocationBenchmark")
+}
+
+tasks.register<JavaExec>("parserBenchmark") {
+    group = "benchmark"
+    description = "Measures Parser.parseSource() throughput in tokens per second."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.ParserBenchmark")
+}
+
+tasks.register<JavaExec>("visitorBenchmark") {
+    group = "benchmark"
+    description = "Measures Ast.Visitor dispatch in visits per second."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.VisitorBenchmark")
+}
+
+tasks.register<JavaExec>("analyzerBenchmark") {
+    group = "benchmark"
+    description = "Compares serial and parallel Analyzer throughput in functions per second."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.AnalyzerBenchmark")
+}
+
+tasks.register<JavaExec>("incrementalAnalyzerBenchmark") {
+    group = "benchmark"
+    description = "Compares single-function edits with IncrementalAnalyzer against full analysis."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.IncrementalAnalyzerBenchmark")
+}
+
+tasks.register<JavaExec>("interpreterBenchmark") {
+    group = "benchmark"
+    description = "Measures Interpreter throughput in loop iterations per second."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.InterpreterBenchmark")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks, writing JSON results to build/reports/jmh/results.json."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    // Kept apart from args so that JMH options passed with --args are added to these.
+    argumentProviders.add(CommandLineArgumentProvider { listOf("-rf", "json", "-rff", results.absolutePath) })
+    doFirst { results.parentFile.mkdirs() }
+}
+
+tasks.register<JavaExec>("astCacheBenchmark") {
+    group = "benchmark"
+    description = "Compares cold start parsing against loading from a warm AstCache."
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("plc.project.AstCacheBenchmark")
+}
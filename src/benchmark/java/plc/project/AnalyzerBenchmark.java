@@ -0,0 +1,91 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares {@link Analyzer#visit(Ast.Source)} against {@link
+ * Analyzer#visitParallel(Ast.Source)} in functions per second over a
+ * synthetic source of functions with declarations, loops, conditionals and
+ * calls to earlier functions. Run with {@code gradle analyzerBenchmark},
+ * optionally passing the number of functions and the number of measured
+ * iterations as arguments.
+ *
+ * The source is built as an AST, since the parser does not read the type
+ * annotations the analyzer requires.
+ */
+public final class AnalyzerBenchmark {
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Ast.Source source = generate(functions);
+
+        double[] serial = new double[iterations];
+        double[] parallel = new double[iterations];
+        // Warm up the JIT before measuring.
+        for (int i = 0; i < 5; i++) {
+            new Analyzer(new Scope(null)).visit(source);
+            new Analyzer(new Scope(null)).visitParallel(source);
+        }
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            new Analyzer(new Scope(null)).visit(source);
+            serial[i] = functions / ((System.nanoTime() - start) / 1e9);
+            start = System.nanoTime();
+            new Analyzer(new Scope(null)).visitParallel(source);
+            parallel[i] = functions / ((System.nanoTime() - start) / 1e9);
+        }
+        Arrays.sort(serial);
+        Arrays.sort(parallel);
+        System.out.printf("input: %d functions, parallelism %d%n", functions, ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("serial median: %.1f kfunctions/s, best: %.1f kfunctions/s%n",
+                serial[iterations / 2] / 1e3, serial[iterations - 1] / 1e3);
+        System.out.printf("parallel median: %.1f kfunctions/s, best: %.1f kfunctions/s%n",
+                parallel[iterations / 2] / 1e3, parallel[iterations - 1] / 1e3);
+    }
+
+    /**
+     * Returns a source of an Integer global and the given number of functions
+     * with no parameters returning Integer, the last of which is main.
+     */
+    static Ast.Source generate(int functions) {
+        List<Ast.Function> list = new ArrayList<>();
+        for (int i = 0; i < functions; i++) {
+            String name = i == functions - 1 ? "main" : "f" + i;
+            Ast.Expression previous = i == 0 ? access("x")
+                    : new Ast.Expression.Function("f" + (i - 1), Arrays.asList());
+            list.add(new Ast.Function(name, Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                    new Ast.Statement.Declaration("y", Optional.of("Integer"), Optional.of(
+                            binary("+", previous, binary("*", access("x"), literal(i))))),
+                    new Ast.Statement.While(binary("<", access("y"), literal(100)), Arrays.asList(
+                            new Ast.Statement.Assignment(access("y"), binary("+", access("y"), literal(1))),
+                            new Ast.Statement.If(binary("==", access("y"), access("x")),
+                                    Arrays.asList(new Ast.Statement.Expression(
+                                            new Ast.Expression.Function("print", Arrays.asList(access("y"))))),
+                                    Arrays.asList(new Ast.Statement.Assignment(access("x"), binary("-", access("y"), literal(2)))))
+                    )),
+                    new Ast.Statement.Return(binary("/", access("y"), literal(2)))
+            )));
+        }
+        Ast.Global global = new Ast.Global("x", "Integer", true, Optional.of(literal(1)));
+        return new Ast.Source(Arrays.asList(global), list);
+    }
+
+    private static Ast.Expression literal(int value) {
+        return new Ast.Expression.Literal(BigInteger.valueOf(value));
+    }
+
+    private static Ast.Expression access(String name) {
+        return new Ast.Expression.Access(Optional.empty(), name);
+    }
+
+    private static Ast.Expression binary(String operator, Ast.Expression left, Ast.Expression right) {
+        return new Ast.Expression.Binary(operator, left, right);
+    }
+
+}
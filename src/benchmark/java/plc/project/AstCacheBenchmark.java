@@ -0,0 +1,107 @@
+package plc.project;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compares the cold start time of parsing a generated source against loading
+ * it from a warm {@link AstCache}. Each run is a new JVM that reads the
+ * source and produces its {@link Ast.Source}, and reports the time from
+ * reading the file to having the AST along with the time for the whole
+ * process. Run with {@code gradle astCacheBenchmark}, optionally passing the
+ * number of functions and runs as arguments.
+ */
+public final class AstCacheBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("run")) {
+            run(args[1], Paths.get(args[2]), Paths.get(args[3]));
+            return;
+        }
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path directory = Files.createTempDirectory("ast-cache-benchmark");
+        try {
+            Path source = directory.resolve("source.plc");
+            Files.writeString(source, generate(functions), StandardCharsets.UTF_8);
+            Path cache = directory.resolve("cache");
+            new AstCache(cache).load(Files.readString(source, StandardCharsets.UTF_8));
+
+            System.out.printf("source: %d functions, %d bytes%n", functions, Files.size(source));
+            for (String mode : new String[] {"parse", "cache"}) {
+                long[] loads = new long[runs];
+                long[] processes = new long[runs];
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                            "-cp", System.getProperty("java.class.path"), AstCacheBenchmark.class.getName(),
+                            "run", mode, source.toString(), cache.toString())
+                            .redirectErrorStream(true)
+                            .start();
+                    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+                    if (process.waitFor() != 0) {
+                        throw new IllegalStateException("Run failed: " + output);
+                    }
+                    processes[i] = System.nanoTime() - start;
+                    loads[i] = Long.parseLong(output.substring(output.lastIndexOf('\n') + 1));
+                }
+                System.out.printf("%s: %.1f ms to AST, %.1f ms process (median of %d)%n",
+                        mode, median(loads) / 1e6, median(processes) / 1e6, runs);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Produces the AST in a new JVM, printing the nanoseconds it took.
+     */
+    private static void run(String mode, Path source, Path cache) throws IOException {
+        long start = System.nanoTime();
+        String input = Files.readString(source, StandardCharsets.UTF_8);
+        Ast.Source ast = mode.equals("cache")
+                ? new AstCache(cache).get(input).orElseThrow(() -> new IllegalStateException("Cache miss."))
+                : new Parser(new Lexer(input).lex()).parseSource();
+        long elapsed = System.nanoTime() - start;
+        if (ast.getFunctions().isEmpty()) {
+            throw new IllegalStateException("No functions.");
+        }
+        System.out.println(elapsed);
+    }
+
+    /**
+     * Deletes {@code directory} and everything in it.
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String generate(int functions) {
+        StringBuilder builder = new StringBuilder("VAR x = 0;\nLIST xs = [1, 2, 3];\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("FUN f").append(i).append("(a) DO\n")
+                    .append("    x = x * 2 + 1;\n")
+                    .append("    IF x > 100 DO x = 0; ELSE xs[1] = \"value\"; END\n")
+                    .append("    WHILE x < 10 DO print(x, 'c', 1.5); x = x + 1; END\n")
+                    .append("END\n");
+        }
+        return builder.toString();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+}
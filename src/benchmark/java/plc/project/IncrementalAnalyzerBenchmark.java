@@ -0,0 +1,52 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * Measures single-function edits with {@link IncrementalAnalyzer} against
+ * analyzing the whole source again, over sources of increasing size from
+ * {@link AnalyzerBenchmark#generate(int)}. Run with {@code gradle
+ * incrementalAnalyzerBenchmark}, optionally passing the number of measured
+ * edits per size as an argument.
+ */
+public final class IncrementalAnalyzerBenchmark {
+
+    public static void main(String[] args) {
+        int edits = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+
+        for (int functions : new int[] {1_000, 4_000, 16_000}) {
+            Ast.Source source = AnalyzerBenchmark.generate(functions);
+            IncrementalAnalyzer analyzer = new IncrementalAnalyzer(null);
+            long start = System.nanoTime();
+            analyzer.analyze(source);
+            double full = (System.nanoTime() - start) / 1e3;
+
+            // Replaces a function in the middle with a fresh copy of itself,
+            // which keeps its signature.
+            int index = functions / 2;
+            Ast.Function[] copies = new Ast.Function[edits];
+            for (int i = 0; i < edits; i++) {
+                copies[i] = copy(source.getFunctions().get(index));
+            }
+            double[] times = new double[edits];
+            for (int i = 0; i < edits; i++) {
+                start = System.nanoTime();
+                analyzer.replaceFunction(index, copies[i]);
+                times[i] = (System.nanoTime() - start) / 1e3;
+            }
+            Arrays.sort(times);
+            System.out.printf("%d functions: full analysis %.0f us, edit median %.1f us, checked %d%n",
+                    functions, full, times[edits / 2], analyzer.getChecked());
+        }
+    }
+
+    /**
+     * Returns an unanalyzed copy of the function, sharing its statements,
+     * which are analyzed again in place.
+     */
+    private static Ast.Function copy(Ast.Function function) {
+        return new Ast.Function(function.getName(), function.getParameters(),
+                function.getParameterTypeNames(), function.getReturnTypeName(), function.getStatements());
+    }
+
+}
@@ -0,0 +1,92 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Measures {@link Interpreter} throughput in loop iterations per second over a
+ * variable-heavy loop reading and writing parameters, locals and a global.
+ * Run with {@code gradle interpreterBenchmark}, optionally passing the number
+ * of loop iterations and the number of measured runs as arguments.
+ *
+ * The program is built as an AST, since the parser does not accept {@code
+ * LET} and {@code RETURN} inside a block.
+ */
+public final class InterpreterBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Ast.Source source = generate(iterations);
+
+        double[] rates = new double[runs];
+        // Warm up the JIT before measuring.
+        for (int i = 0; i < 5; i++) {
+            new Interpreter(new Scope(null)).visit(source);
+        }
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            new Interpreter(new Scope(null)).visit(source);
+            long elapsed = System.nanoTime() - start;
+            rates[i] = iterations / (elapsed / 1e9);
+        }
+        Arrays.sort(rates);
+        System.out.printf("loop: %d iterations%n", iterations);
+        System.out.printf("median: %.2f Miterations/s, best: %.2f Miterations/s%n",
+                rates[runs / 2] / 1e6, rates[runs - 1] / 1e6);
+    }
+
+    /**
+     * Returns the source for:
+     *
+     * <pre>
+     * VAR total = 0;
+     * FUN loop(n, step) DO
+     *     LET i = 0; LET sum = 0;
+     *     WHILE i &lt; n DO
+     *         LET twice = i * step;
+     *         IF twice &gt; sum DO sum = sum + twice; ELSE sum = sum - i; END
+     *         total = total + 1;
+     *         i = i + 1;
+     *     END
+     *     RETURN sum;
+     * END
+     * FUN main() DO RETURN loop(iterations, 2); END
+     * </pre>
+     */
+    static Ast.Source generate(int iterations) {
+        Ast.Function loop = new Ast.Function("loop", Arrays.asList("n", "step"), Arrays.asList(
+                new Ast.Statement.Declaration("i", Optional.of(literal(0))),
+                new Ast.Statement.Declaration("sum", Optional.of(literal(0))),
+                new Ast.Statement.While(binary("<", access("i"), access("n")), Arrays.asList(
+                        new Ast.Statement.Declaration("twice", Optional.of(binary("*", access("i"), access("step")))),
+                        new Ast.Statement.If(binary(">", access("twice"), access("sum")),
+                                Arrays.asList(new Ast.Statement.Assignment(access("sum"), binary("+", access("sum"), access("twice")))),
+                                Arrays.asList(new Ast.Statement.Assignment(access("sum"), binary("-", access("sum"), access("i"))))),
+                        new Ast.Statement.Assignment(access("total"), binary("+", access("total"), literal(1))),
+                        new Ast.Statement.Assignment(access("i"), binary("+", access("i"), literal(1)))
+                )),
+                new Ast.Statement.Return(access("sum"))
+        ));
+        Ast.Function main = new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                new Ast.Statement.Return(new Ast.Expression.Function("loop", Arrays.asList(literal(iterations), literal(2))))
+        ));
+        List<Ast.Global> globals = Arrays.asList(new Ast.Global("total", true, Optional.of(literal(0))));
+        return new Ast.Source(globals, Arrays.asList(loop, main));
+    }
+
+    private static Ast.Expression literal(int value) {
+        return new Ast.Expression.Literal(BigInteger.valueOf(value));
+    }
+
+    private static Ast.Expression access(String name) {
+        return new Ast.Expression.Access(Optional.empty(), name);
+    }
+
+    private static Ast.Expression binary(String operator, Ast.Expression left, Ast.Expression right) {
+        return new Ast.Expression.Binary(operator, left, right);
+    }
+
+}
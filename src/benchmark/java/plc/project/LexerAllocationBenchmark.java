@@ -0,0 +1,48 @@
+package plc.project;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated per input when lexing many small expressions,
+ * comparing a new {@link Lexer} and token list per input against the thread's
+ * {@link Lexer#local(CharSequence)} lexer writing into a reused {@link
+ * TokenBuffer}. Run with {@code gradle lexerAllocationBenchmark}, optionally
+ * passing the number of measured inputs as an argument.
+ */
+public final class LexerAllocationBenchmark {
+
+    private static final String[] INPUTS = {
+            "x + 1", "price * quantity - discount", "LET total = sum(a, b);", "name == \"admin\"",
+            "IF count > 10 DO", "scale * 0.5 + offset", "list[index] != 'c'", "print(\"Hello, World!\");",
+    };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TokenBuffer buffer = new TokenBuffer("");
+        long tokens = 0;
+
+        // Warm up the JIT, which also grows the buffer and symbol table.
+        for (int i = 0; i < 200_000; i++) {
+            tokens += new Lexer(INPUTS[i % INPUTS.length]).lex().size();
+            tokens += Lexer.local(INPUTS[i % INPUTS.length]).lexBuffer(buffer).size();
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++) {
+            tokens += new Lexer(INPUTS[i % INPUTS.length]).lex().size();
+        }
+        long fresh = threads.getCurrentThreadAllocatedBytes() - before;
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++) {
+            tokens += Lexer.local(INPUTS[i % INPUTS.length]).lexBuffer(buffer).size();
+        }
+        long reused = threads.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.printf("inputs: %d (%d tokens)%n", count, tokens);
+        System.out.printf("new lexer: %.1f bytes/input%n", (double) fresh / count);
+        System.out.printf("local lexer and reused buffer: %.1f bytes/input%n", (double) reused / count);
+    }
+
+}
@@ -0,0 +1,60 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures {@link Lexer#lex()} throughput in characters per second over a
+ * synthetic program mixing every token type. Run with {@code gradle
+ * lexerBenchmark}, optionally passing the input size in characters and the
+ * number of measured iterations as arguments. A third argument of {@code
+ * parallel} measures {@link Lexer#lexParallel()} instead.
+ */
+public final class LexerBenchmark {
+
+    private static final String[] FRAGMENTS = {
+            "LET ", "x", "name_1", "@value", " = ", "12345", "-42", "3.14159", "-0.5",
+            "'c'", "'\\n'", "\"Hello, World!\"", "\"tab\\tseparated\"", "(", ")", "[", "]",
+            " + ", " - ", " * ", " / ", " ^ ", " == ", " != ", " < ", " > ", " && ", ";\n",
+            "\tWHILE ", " DO\n", "END\n", "print(", ", ",
+    };
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean parallel = args.length > 2 && args[2].equals("parallel");
+        String input = generate(size, new Random(0));
+
+        // Warm up the JIT before measuring.
+        for (int i = 0; i < 5; i++) {
+            lex(input, parallel);
+        }
+
+        double[] rates = new double[iterations];
+        int tokens = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            tokens = lex(input, parallel).size();
+            long elapsed = System.nanoTime() - start;
+            rates[i] = input.length() / (elapsed / 1e9);
+        }
+        Arrays.sort(rates);
+        System.out.printf("input: %d chars, %d tokens%n", input.length(), tokens);
+        System.out.printf("median: %.1f Mchars/s, best: %.1f Mchars/s%n",
+                rates[iterations / 2] / 1e6, rates[iterations - 1] / 1e6);
+    }
+
+    private static List<Token> lex(String input, boolean parallel) {
+        return parallel ? new Lexer(input).lexParallel() : new Lexer(input).lex();
+    }
+
+    static String generate(int size, Random random) {
+        StringBuilder builder = new StringBuilder(size + 32);
+        while (builder.length() < size) {
+            builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]).append(' ');
+        }
+        return builder.toString();
+    }
+
+}
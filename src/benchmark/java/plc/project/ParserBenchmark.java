@@ -0,0 +1,61 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures {@link Parser#parseSource()} throughput in tokens per second over
+ * a synthetic program of globals and functions mixing assignments, calls,
+ * every binary operator and nested blocks. Run with {@code gradle
+ * parserBenchmark}, optionally passing the number of functions and the number
+ * of measured iterations as arguments.
+ */
+public final class ParserBenchmark {
+
+    private static final String[] STATEMENTS = {
+            "x = 1 + 2 * y - z / 4;",
+            "x = f(a, b[i], \"string\", 'c');",
+            "list[i + 1] = 3.14 ^ 2;",
+            "print(x == y, x != y, x < y, x > y);",
+            "IF x > 0 DO x = x - 1; ELSE y = x + 1 * 2; END",
+            "WHILE i < 10 DO i = i + 1; f(i); END",
+            "SWITCH x CASE 1: y = TRUE; CASE 2: y = FALSE; DEFAULT z = NIL; END",
+    };
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<Token> tokens = new Lexer(generate(functions, new Random(0))).lex();
+
+        double[] rates = new double[iterations];
+        // Warm up the JIT before measuring.
+        for (int i = 0; i < 5; i++) {
+            new Parser(tokens).parseSource();
+        }
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            new Parser(tokens).parseSource();
+            long elapsed = System.nanoTime() - start;
+            rates[i] = tokens.size() / (elapsed / 1e9);
+        }
+        Arrays.sort(rates);
+        System.out.printf("input: %d functions, %d tokens%n", functions, tokens.size());
+        System.out.printf("median: %.1f Mtokens/s, best: %.1f Mtokens/s%n",
+                rates[iterations / 2] / 1e6, rates[iterations - 1] / 1e6);
+    }
+
+    static String generate(int functions, Random random) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("VAR x = 1;\nVAL y = 2;\nLIST list = [1, 2, 3];\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("FUN f").append(i).append("(a, b) DO\n");
+            for (int j = random.nextInt(8); j >= 0; j--) {
+                builder.append("    ").append(STATEMENTS[random.nextInt(STATEMENTS.length)]).append('\n');
+            }
+            builder.append("END\n");
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,38 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures {@link Lexer#relex(List, int, int, int)} for an edit at the start
+ * of inputs of increasing size from {@link LexerBenchmark#generate(int,
+ * Random)}, so nearly every token follows the edit, against lexing the whole
+ * input. Run with {@code gradle relexBenchmark}, optionally passing the
+ * number of measured edits per size as an argument.
+ */
+public final class RelexBenchmark {
+
+    public static void main(String[] args) {
+        int edits = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        for (int size : new int[] {100_000, 1_000_000, 4_000_000}) {
+            String input = LexerBenchmark.generate(size, new Random(0));
+            long start = System.nanoTime();
+            List<Token> previous = new Lexer(input).lex();
+            double full = (System.nanoTime() - start) / 1e3;
+
+            // Inserts an identifier before the first token.
+            String edited = "y " + input;
+            double[] times = new double[edits];
+            for (int i = 0; i < edits; i++) {
+                start = System.nanoTime();
+                new Lexer(edited).relex(previous, 0, 0, 2);
+                times[i] = (System.nanoTime() - start) / 1e3;
+            }
+            Arrays.sort(times);
+            System.out.printf("%d chars, %d tokens: full lex %.0f us, relex median %.2f us%n",
+                    input.length(), previous.size(), full, times[edits / 2]);
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Measures dispatch through {@link Ast.Visitor#visit(Ast)} in visits per
+ * second over a complete expression tree of binary operators, calls, lists
+ * and groups. Run with {@code gradle visitorBenchmark}, optionally passing
+ * the depth of the tree and the number of measured iterations as arguments.
+ */
+public final class VisitorBenchmark {
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Ast.Expression tree = generate(depth, true);
+        Counter counter = new Counter();
+
+        // Warm up the JIT before measuring.
+        for (int i = 0; i < 5; i++) {
+            counter.visit(tree);
+        }
+
+        double[] rates = new double[iterations];
+        long visits = 0;
+        for (int i = 0; i < iterations; i++) {
+            counter.visits = 0;
+            long start = System.nanoTime();
+            counter.visit(tree);
+            long elapsed = System.nanoTime() - start;
+            visits = counter.visits;
+            rates[i] = visits / (elapsed / 1e9);
+        }
+        Arrays.sort(rates);
+        System.out.printf("tree: depth %d, %d nodes%n", depth, visits);
+        System.out.printf("median: %.1f Mvisits/s, best: %.1f Mvisits/s%n",
+                rates[iterations / 2] / 1e6, rates[iterations - 1] / 1e6);
+    }
+
+    /**
+     * Returns a complete tree of the given depth, with each level of inner
+     * nodes of a different class so dispatch cannot settle on one. Leaves
+     * are literals on the left and accesses on the right.
+     */
+    static Ast.Expression generate(int depth, boolean first) {
+        if (depth == 0) {
+            return first ? new Ast.Expression.Literal(BigInteger.ONE)
+                    : new Ast.Expression.Access(Optional.empty(), "x");
+        }
+        Ast.Expression left = generate(depth - 1, true);
+        Ast.Expression right = generate(depth - 1, false);
+        switch (depth % 4) {
+            case 0:
+                return new Ast.Expression.Binary("+", left, new Ast.Expression.Group(right));
+            case 1:
+                return new Ast.Expression.Function("f", Arrays.asList(left, right));
+            case 2:
+                return new Ast.Expression.PlcList(Arrays.asList(left, right));
+            default:
+                return new Ast.Expression.Binary("*", left, new Ast.Expression.Access(Optional.of(right), "xs"));
+        }
+    }
+
+    private static final class Counter implements Ast.Visitor<Void> {
+
+        private long visits;
+
+        private Void visitAll(List<? extends Ast> asts) {
+            for (Ast ast : asts) {
+                visit(ast);
+            }
+            return null;
+        }
+
+        private Void visitOptional(Optional<? extends Ast> ast) {
+            ast.ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast ast) {
+            visits++;
+            return Ast.Visitor.super.visit(ast);
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            visitAll(ast.getGlobals());
+            return visitAll(ast.getFunctions());
+        }
+
+        @Override
+        public Void visit(Ast.Global ast) {
+            return visitOptional(ast.getValue());
+        }
+
+        @Override
+        public Void visit(Ast.Function ast) {
+            return visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Expression ast) {
+            return visit(ast.getExpression());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Declaration ast) {
+            return visitOptional(ast.getValue());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Assignment ast) {
+            visit(ast.getReceiver());
+            return visit(ast.getValue());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.If ast) {
+            visit(ast.getCondition());
+            visitAll(ast.getThenStatements());
+            return visitAll(ast.getElseStatements());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Switch ast) {
+            visit(ast.getCondition());
+            return visitAll(ast.getCases());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Case ast) {
+            visitOptional(ast.getValue());
+            return visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.While ast) {
+            visit(ast.getCondition());
+            return visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Void visit(Ast.Statement.Return ast) {
+            return visit(ast.getValue());
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Literal ast) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Group ast) {
+            return visit(ast.getExpression());
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Binary ast) {
+            visit(ast.getLeft());
+            return visit(ast.getRight());
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Access ast) {
+            return visitOptional(ast.getOffset());
+        }
+
+        @Override
+        public Void visit(Ast.Expression.Function ast) {
+            return visitAll(ast.getArguments());
+        }
+
+        @Override
+        public Void visit(Ast.Expression.PlcList ast) {
+            return visitAll(ast.getValues());
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares walking the {@link Programs} as {@link Ast} objects with an {@link
+ * Ast.Visitor} against walking their {@link FlatAst} encoding with a {@link
+ * FlatAst.Visitor}. Both visitors visit every node and count the literals
+ * and names, the lookups a pass like the {@link Analyzer} makes at each
+ * node; {@link #scanFlat()} counts them with a loop instead. Run with {@code
+ * gradle jmh --args="FlatAstBenchmark"}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlatAstBenchmark {
+
+    @Param({"EXPRESSION", "FUNCTIONS", "LIST"})
+    public Programs program;
+
+    @Param({"1000"})
+    public int size;
+
+    private Ast.Source ast;
+    private FlatAst flat;
+
+    @Setup
+    public void setup() {
+        ast = new Parser(new Lexer(program.generate(size)).lex()).parseSource();
+        flat = FlatAst.of(ast);
+    }
+
+    @Benchmark
+    public int walkAst() {
+        return new AstCounter().visit(ast);
+    }
+
+    @Benchmark
+    public int walkFlat() {
+        return flat.visit(new FlatCounter(flat), flat.getRoot());
+    }
+
+    /**
+     * Counts the same values as {@link #walkFlat()} with a loop over the
+     * node arrays, which passes that do not depend on the shape of the tree
+     * can use instead of recursing.
+     */
+    @Benchmark
+    public int scanFlat() {
+        int count = 0;
+        for (int node = 0; node < flat.size(); node++) {
+            switch (flat.getKind(node)) {
+                case GLOBAL:
+                case FUNCTION:
+                case DECLARATION:
+                case ACCESS:
+                case CALL:
+                    count += flat.getName(node).length();
+                    break;
+                case BINARY:
+                    count += flat.getOperator(node).length();
+                    break;
+                case LITERAL:
+                    count += flat.getLiteral(node) == null ? 0 : 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public FlatAst encode() {
+        return FlatAst.of(ast);
+    }
+
+    private static final class AstCounter implements Ast.Visitor<Integer> {
+
+        private int visitAll(List<? extends Ast> asts) {
+            int count = 0;
+            for (Ast ast : asts) {
+                count += visit(ast);
+            }
+            return count;
+        }
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            return visitAll(ast.getGlobals()) + visitAll(ast.getFunctions());
+        }
+
+        @Override
+        public Integer visit(Ast.Global ast) {
+            return ast.getName().length() + ast.getValue().map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Function ast) {
+            return ast.getName().length() + visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Expression ast) {
+            return visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Declaration ast) {
+            return ast.getName().length() + ast.getValue().map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Assignment ast) {
+            return visit(ast.getReceiver()) + visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.If ast) {
+            return visit(ast.getCondition()) + visitAll(ast.getThenStatements()) + visitAll(ast.getElseStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Switch ast) {
+            return visit(ast.getCondition()) + visitAll(ast.getCases());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Case ast) {
+            return ast.getValue().map(this::visit).orElse(0) + visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.While ast) {
+            return visit(ast.getCondition()) + visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Return ast) {
+            return visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Literal ast) {
+            return ast.getLiteral() == null ? 0 : 1;
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Group ast) {
+            return visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Binary ast) {
+            return ast.getOperator().length() + visit(ast.getLeft()) + visit(ast.getRight());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Access ast) {
+            return ast.getName().length() + ast.getOffset().map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Function ast) {
+            return ast.getName().length() + visitAll(ast.getArguments());
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.PlcList ast) {
+            return visitAll(ast.getValues());
+        }
+
+    }
+
+    private static final class FlatCounter implements FlatAst.Visitor<Integer> {
+
+        private final FlatAst flat;
+
+        private FlatCounter(FlatAst flat) {
+            this.flat = flat;
+        }
+
+        private int visitChildren(int node) {
+            int count = 0;
+            for (int i = 0; i < flat.getChildCount(node); i++) {
+                count += flat.visit(this, flat.getChild(node, i));
+            }
+            return count;
+        }
+
+        private int visitNamed(int node) {
+            return flat.getName(node).length() + visitChildren(node);
+        }
+
+        @Override
+        public Integer visitSource(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitGlobal(int node) {
+            return visitNamed(node);
+        }
+
+        @Override
+        public Integer visitFunction(int node) {
+            return visitNamed(node);
+        }
+
+        @Override
+        public Integer visitExpressionStatement(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitDeclaration(int node) {
+            return visitNamed(node);
+        }
+
+        @Override
+        public Integer visitAssignment(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitIf(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitSwitch(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitCase(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitWhile(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitReturn(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitLiteral(int node) {
+            return flat.getLiteral(node) == null ? 0 : 1;
+        }
+
+        @Override
+        public Integer visitGroup(int node) {
+            return visitChildren(node);
+        }
+
+        @Override
+        public Integer visitBinary(int node) {
+            return flat.getOperator(node).length() + visitChildren(node);
+        }
+
+        @Override
+        public Integer visitAccess(int node) {
+            return visitNamed(node);
+        }
+
+        @Override
+        public Integer visitCall(int node) {
+            return visitNamed(node);
+        }
+
+        @Override
+        public Integer visitList(int node) {
+            return visitChildren(node);
+        }
+
+    }
+
+}
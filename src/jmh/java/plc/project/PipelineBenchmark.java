@@ -0,0 +1,79 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each stage of the pipeline on the {@link Programs}, with the
+ * input of every stage prepared up front from the output of the previous one.
+ * Run with {@code gradle jmh}, which writes JSON results to {@code
+ * build/reports/jmh/results.json}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"EXPRESSION", "FUNCTIONS", "LOOP", "LIST"})
+    public Programs program;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private String source;
+    private List<Token> tokens;
+    private Ast.Source ast;
+    private Ast.Source typed;
+
+    @Setup
+    public void setup() {
+        source = program.generate(size);
+        tokens = new Lexer(source).lex();
+        ast = new Parser(tokens).parseSource();
+        typed = Programs.typed(ast);
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return new Lexer(source).lex();
+    }
+
+    @Benchmark
+    public Ast.Source parse() {
+        return new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source parseIterative() {
+        Parser parser = new Parser(tokens);
+        parser.setIterative(true);
+        return parser.parseSource();
+    }
+
+    @Benchmark
+    public Analyzer analyze() {
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.visit(typed);
+        return analyzer;
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpret() {
+        return new Interpreter(new Scope(null)).visit(ast);
+    }
+
+}
@@ -0,0 +1,108 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Synthetic programs for the benchmarks, each scaled by a size parameter.
+ * Programs only use syntax the {@link Parser} accepts and run to completion
+ * in the {@link Interpreter} through {@code main}.
+ */
+public enum Programs {
+
+    /**
+     * A single assignment of a left-associative expression with {@code size}
+     * operators.
+     */
+    EXPRESSION {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder("VAR x = 1;\nFUN main() DO\n    x = x");
+            String[] operators = {" + ", " * ", " - ", " / "};
+            for (int i = 0; i < size; i++) {
+                builder.append(operators[i % operators.length]).append(i % 7 + 1);
+            }
+            return builder.append(";\nEND\n").toString();
+        }
+    },
+
+    /**
+     * {@code size} small functions, each called once from {@code main}. The
+     * {@link Analyzer} defines parameters under the function's name, so the
+     * bodies only use globals.
+     */
+    FUNCTIONS {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder("VAR x = 0;\n");
+            for (int i = 0; i < size; i++) {
+                builder.append("FUN f").append(i).append("(a) DO\n")
+                        .append("    x = x * 2 + 1;\n")
+                        .append("    IF x > 100 DO x = 0; ELSE x = x + 1; END\n")
+                        .append("END\n");
+            }
+            builder.append("FUN main() DO\n");
+            for (int i = 0; i < size; i++) {
+                builder.append("    f").append(i).append("(").append(i).append(");\n");
+            }
+            return builder.append("END\n").toString();
+        }
+    },
+
+    /**
+     * A {@code WHILE} loop running {@code size} iterations.
+     */
+    LOOP {
+        @Override
+        public String generate(int size) {
+            return "VAR i = 0;\nVAR sum = 0;\nFUN main() DO\n"
+                    + "    WHILE i < " + size + " DO\n"
+                    + "        sum = sum + i * 2;\n"
+                    + "        i = i + 1;\n"
+                    + "    END\n"
+                    + "END\n";
+        }
+    },
+
+    /**
+     * A global {@code LIST} literal with {@code size} elements.
+     */
+    LIST {
+        @Override
+        public String generate(int size) {
+            StringBuilder builder = new StringBuilder("LIST xs = [");
+            for (int i = 0; i < size; i++) {
+                builder.append(i == 0 ? "" : ", ").append(i);
+            }
+            return builder.append("];\nFUN main() DO\n    xs[0] = xs[1] + 1;\nEND\n").toString();
+        }
+    };
+
+    /**
+     * Returns the source of this program scaled to {@code size}.
+     */
+    public abstract String generate(int size);
+
+    /**
+     * Returns a copy of a parsed program with the type names the {@link
+     * Analyzer} requires, since the parser does not read them. Globals and
+     * parameters are {@code Integer}, {@code main} returns {@code Integer}
+     * and every other function returns nothing.
+     */
+    public static Ast.Source typed(Ast.Source source) {
+        List<Ast.Global> globals = source.getGlobals().stream()
+                .map(global -> new Ast.Global(global.getName(), "Integer", global.getMutable(), global.getValue()))
+                .collect(Collectors.toList());
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : source.getFunctions()) {
+            List<String> types = new ArrayList<>(Collections.nCopies(function.getParameters().size(), "Integer"));
+            Optional<String> returns = function.getName().equals("main") ? Optional.of("Integer") : Optional.empty();
+            functions.add(new Ast.Function(function.getName(), function.getParameters(), types, returns, function.getStatements()));
+        }
+        return new Ast.Source(globals, functions);
+    }
+
+}
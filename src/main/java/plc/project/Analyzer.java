@@ -3,9 +3,14 @@ package plc.project;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import static plc.project.Ast.*;
@@ -21,11 +26,46 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Scope scope;
     private Function function;
 
+    /**
+     * For an analyzer checking a single declaration apart from the others,
+     * the top-level scope, the index of each global and function of the
+     * source, and the index of the global or function being checked. Globals
+     * from and functions after these indices are not defined yet in serial
+     * analysis.
+     */
+    private Scope top;
+    private Map<Environment.Variable, Integer> globals;
+    private int global;
+    private Map<Environment.Function, Integer> declarations;
+    private int declaration;
+
+    /**
+     * If not null, records the names of the variables and the name/arity of
+     * the functions looked up, which {@link IncrementalAnalyzer} uses as the
+     * dependencies of a declaration.
+     */
+    Set<String> dependencies;
+
     public Analyzer(Scope parent) {
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
     }
 
+    /**
+     * Creates an analyzer for a single declaration directly below the
+     * top-level scope of the source, which sees the globals before index
+     * {@code global} and the functions up to index {@code declaration}.
+     */
+    Analyzer(Scope scope, Map<Environment.Variable, Integer> globals, int global,
+             Map<Environment.Function, Integer> declarations, int declaration) {
+        this.scope = scope;
+        this.top = scope;
+        this.globals = globals;
+        this.global = global;
+        this.declarations = declarations;
+        this.declaration = declaration;
+    }
+
     public Scope getScope() {
         return scope;
     }
@@ -52,6 +92,93 @@ public final class Analyzer implements Ast.Visitor<Void> {
             }
         }
 
+        requireMain(mainFunctionExists, mainFunctionReturnType);
+        return null;
+
+    }
+
+    /**
+     * Analyzes the source like {@link #visit(Source)}, but checks the
+     * function bodies concurrently on the common {@link ForkJoinPool}.
+     */
+    public Void visitParallel(Source ast) {
+        return visitParallel(ast, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Analyzes the source like {@link #visit(Source)}, but checks the
+     * function bodies concurrently on the given pool.
+     *
+     * The globals and then the signatures of the functions are defined in
+     * order first, after which the top-level scope is only read. Each body is
+     * then checked by its own analyzer in a child scope, which treats the
+     * functions declared after it as undefined as serial analysis would. The
+     * first error is thrown in function order, so the results are the same as
+     * those of {@link #visit(Source)}, except that after an error, the
+     * functions following the failing one may have been analyzed as well.
+     * With a parallelism of one, this is simply {@link #visit(Source)}.
+     */
+    public Void visitParallel(Source ast, ForkJoinPool pool) {
+        if (pool.getParallelism() <= 1) {
+            return visit(ast);
+        }
+        for (Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        List<Function> functions = ast.getFunctions();
+        Map<Environment.Function, Integer> declarations = new IdentityHashMap<>();
+        RuntimeException signatureException = null;
+        int declared = 0;
+        for (; declared < functions.size(); declared++) {
+            try {
+                declare(functions.get(declared));
+            } catch (RuntimeException e) {
+                signatureException = e;
+                break;
+            }
+            declarations.put(functions.get(declared).getFunction(), declared);
+        }
+
+        RuntimeException[] exceptions = new RuntimeException[declared];
+        int group = Math.max(1, declared / (pool.getParallelism() * 4));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int first = 0; first < declared; first += group) {
+            int from = first, to = Math.min(first + group, declared);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                // Bodies after one that fails are not needed.
+                for (int i = from; i < to; i++) {
+                    try {
+                        new Analyzer(scope, null, 0, declarations, i).visitBody(functions.get(i));
+                    } catch (RuntimeException e) {
+                        exceptions[i] = e;
+                        return;
+                    }
+                }
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        for (int i = 0; i < declared; i++) {
+            if (exceptions[i] != null) {
+                throw exceptions[i];
+            }
+        }
+        if (signatureException != null) {
+            throw signatureException;
+        }
+
+        boolean mainFunctionExists = false;
+        Environment.Type mainFunctionReturnType = null;
+        for (Function function : functions) {
+            if ("main".equals(function.getName()) && function.getParameters().isEmpty()) {
+                mainFunctionExists = true;
+                mainFunctionReturnType = function.getFunction().getReturnType();
+            }
+        }
+        requireMain(mainFunctionExists, mainFunctionReturnType);
+        return null;
+    }
+
+    static void requireMain(boolean mainFunctionExists, Environment.Type mainFunctionReturnType) {
         // Throw an exception if the main function does not exist.
         if (!mainFunctionExists) {
             throw new RuntimeException("A main function with no parameters must be defined.");
@@ -61,9 +188,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if (!Environment.Type.INTEGER.equals(mainFunctionReturnType)) {
             throw new RuntimeException("The main function must return Integer.");
         }
-
-        return null;
-
     }
 
     @Override
@@ -101,6 +225,15 @@ Boolean mut=ast.getMutable();
 
     @Override
     public Void visit(Function ast) {
+        declare(ast);
+        visitBody(ast);
+        return null;
+    }
+
+    /**
+     * Defines the function in the current scope from its signature.
+     */
+    void declare(Function ast) {
         // Convert parameter type names and return type name to Environment.Types
         List<Environment.Type> parameterTypes = ast.getParameterTypeNames().stream()
                 .map(this::getTypeFromEnvironment)
@@ -114,7 +247,31 @@ Boolean mut=ast.getMutable();
         scope.defineFunction(ast.getName(),ast.getName(), parameterTypes, returnType, args->Environment.NIL);
         Environment.Function temp=scope.lookupFunction(ast.getName(),ast.getParameters().size());
         ast.setFunction(temp);
+    }
 
+    /**
+     * Returns whether {@link #declare(Function)} would define the function
+     * as one equal to the given one.
+     */
+    boolean hasSignature(Function ast, Environment.Function function) {
+        if (!ast.getName().equals(function.getName()) || ast.getParameters().size() != function.getParameterTypes().size()) {
+            return false;
+        }
+        List<Environment.Type> parameterTypes = ast.getParameterTypeNames().stream()
+                .map(this::getTypeFromEnvironment)
+                .collect(Collectors.toList());
+        Environment.Type returnType = ast.getReturnTypeName().map(this::getTypeFromEnvironment)
+                .orElse(Environment.Type.NIL);
+        return parameterTypes.equals(function.getParameterTypes()) && returnType.equals(function.getReturnType());
+    }
+
+    /**
+     * Checks the body of a function already defined by {@link
+     * #declare(Function)}.
+     */
+    void visitBody(Function ast) {
+        List<Environment.Type> parameterTypes = ast.getFunction().getParameterTypes();
+        currentFunctionReturnType = ast.getFunction().getReturnType();
 
         // Create a new scope for the function's body
         Scope originalScope = this.scope;
@@ -130,11 +287,9 @@ Boolean mut=ast.getMutable();
         for (Statement statement : ast.getStatements()) {
             visit(statement);
         }
-System.out.println(ast);
         // Restore the; original scope
         this.scope = originalScope;
         currentFunctionReturnType = null;
-        return null;
     }
 
     public static class ReturnException extends RuntimeException {
@@ -204,13 +359,11 @@ public Void visit(Statement.Expression ast) {
 
         // Ensure the variable is not already declared in the current scope and add it to the scope.
         try{
-            scope.lookupVariable(ast.getName());
+            lookupVariable(ast.getName());
         }
         catch(RuntimeException e){
             if(e.getMessage().startsWith("The variable")){
-                //System.out.print("test");
                 if(ast.getValue().isPresent()){
-                    System.out.println("test");
                     scope.defineVariable(ast.getName(), ast.getName(), type, true, Environment.create(ast.getValue()));
                 }
                  else{
@@ -221,7 +374,7 @@ public Void visit(Statement.Expression ast) {
         /*if (scope.lookupVariable(ast.getName())!=null) {
             throw new RuntimeException("Variable '" + ast.getName() + "' is already declared in this scope.");
         }*/
-        ast.setVariable(scope.lookupVariable(ast.getName()));
+        ast.setVariable(lookupVariable(ast.getName()));
 
         return null;
     }
@@ -559,7 +712,7 @@ public Void visit(Statement.Expression ast) {
         }
 
         // Retrieve the variable from the current scope using the name.
-        Environment.Variable variable = scope.lookupVariable(ast.getName());
+        Environment.Variable variable = lookupVariable(ast.getName());
         // Set the variable in the Access expression for later use.
         ast.setVariable(variable);
 
@@ -570,7 +723,7 @@ public Void visit(Statement.Expression ast) {
 
     @Override
     public Void visit(Expression.Function ast) {
-        Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+        Environment.Function function = lookupFunction(ast.getName(), ast.getArguments().size());
         ast.setFunction(function);
 
         // Ensure that provided arguments match the expected parameter types.
@@ -623,6 +776,46 @@ public Void visit(Statement.Expression ast) {
         return null;
     }
 
+    /**
+     * Looks up a variable from the current scope. While checking a single
+     * global, a global of the source defined after it is skipped, since
+     * serial analysis would not have defined it yet.
+     */
+    private Environment.Variable lookupVariable(String name) {
+        if (dependencies != null) {
+            dependencies.add(name);
+        }
+        Environment.Variable variable = scope.lookupVariable(name);
+        Integer index = globals == null ? null : globals.get(variable);
+        if (index != null && index >= global) {
+            if (top.getParent() == null) {
+                throw new RuntimeException("The variable " + name + " is not defined in this scope.");
+            }
+            return top.getParent().lookupVariable(name);
+        }
+        return variable;
+    }
+
+    /**
+     * Looks up a function from the current scope. While checking a single
+     * declaration, a function of the source declared after it is skipped, as
+     * for {@link #lookupVariable(String)}.
+     */
+    private Environment.Function lookupFunction(String name, int arity) {
+        if (dependencies != null) {
+            dependencies.add(name + "/" + arity);
+        }
+        Environment.Function function = scope.lookupFunction(name, arity);
+        Integer index = declarations == null ? null : declarations.get(function);
+        if (index != null && index > declaration) {
+            if (top.getParent() == null) {
+                throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+            }
+            return top.getParent().lookupFunction(name, arity);
+        }
+        return function;
+    }
+
     public static void requireAssignable(Environment.Type target, Environment.Type type) {
        if(target==type){
         }
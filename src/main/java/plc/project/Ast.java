@@ -11,6 +11,12 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    /**
+     * Calls the {@link Visitor} method for this node's class, so a visit is
+     * dispatched by one virtual call instead of a chain of type tests.
+     */
+    public abstract <T> T accept(Visitor<T> visitor);
+
     public static final class Source extends Ast {
 
         private final List<Global> globals;
@@ -29,6 +35,11 @@ public abstract class Ast {
             return functions;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
@@ -36,6 +47,11 @@ public abstract class Ast {
                     functions.equals(((Source) obj).functions);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(globals, functions);
+        }
+
         @Override
         public String toString() {
             return "Ast.Source{" +
@@ -53,6 +69,7 @@ public abstract class Ast {
         private final boolean mutable;
         private final Optional<Ast.Expression> value;
         private Environment.Variable variable = null;
+        private int slot = -1;
 
         public Global(String name, boolean mutable, Optional<Expression> value) {
             this(name, "Any", mutable, value);
@@ -93,6 +110,23 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        /**
+         * Returns the index of the global in the source, assigned by the
+         * {@link Resolver}, or -1 if unresolved.
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
+
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
 
         @Override
         public boolean equals(Object obj) {
@@ -104,6 +138,11 @@ public abstract class Ast {
                     Objects.equals(variable, ((Global) obj).variable);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, typeName, mutable, value);
+        }
+
         @Override
         public String toString() {
             return "Ast.Global{" +
@@ -125,6 +164,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Statement> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
         
         public Function(String name, List<String> parameters, List<Statement> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -173,6 +213,24 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots for the parameters and local variables
+         * of a call, assigned by the {@link Resolver}, or -1 if unresolved.
+         * The parameters take the first slots, in order.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
 
         @Override
         public boolean equals(Object obj) {
@@ -185,6 +243,11 @@ public abstract class Ast {
                     Objects.equals(function, ((Ast.Function) obj).function);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, parameters, parameterTypeNames, returnTypeName, statements);
+        }
+
 
         @Override
         public String toString() {
@@ -214,12 +277,22 @@ public abstract class Ast {
                 return expression;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Ast.Statement.Expression &&
                         expression.equals(((Ast.Statement.Expression) obj).expression);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(expression);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Expression{" +
@@ -235,6 +308,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private Optional<Ast.Expression> value;
             private Environment.Variable variable = null;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Ast.Expression> value) {
                 this(name, Optional.empty(), value);
@@ -268,8 +342,27 @@ public abstract class Ast {
             public void setVariable(Environment.Variable variable) {
                 this.variable = variable;
             }
+
+            /**
+             * Returns the slot of the variable in the frame of its function,
+             * assigned by the {@link Resolver}. This is -1 if unresolved, or
+             * if the variable is already declared in the same block, which
+             * fails when executed.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
             
             
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -279,6 +372,11 @@ public abstract class Ast {
                         Objects.equals(variable, ((Declaration) obj).variable);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(name, typeName, value);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Declaration{" +
@@ -309,6 +407,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Assignment &&
@@ -316,6 +419,11 @@ public abstract class Ast {
                         value.equals(((Assignment) obj).value);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(receiver, value);
+            }
+
             @Override
             public final String toString() {
                 return "Ast.Statement.Assignment{" +
@@ -351,6 +459,11 @@ public abstract class Ast {
                 return elseStatements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof If &&
@@ -359,6 +472,11 @@ public abstract class Ast {
                         elseStatements.equals(((If) obj).elseStatements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, thenStatements, elseStatements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.If{" +
@@ -386,6 +504,11 @@ public abstract class Ast {
 
             public List<Ast.Statement.Case> getCases() { return cases; }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Switch &&
@@ -393,6 +516,11 @@ public abstract class Ast {
                         cases.equals(((Switch) obj).cases);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, cases);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Switch{" +
@@ -421,6 +549,11 @@ public abstract class Ast {
                 return statements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Case &&
@@ -428,6 +561,11 @@ public abstract class Ast {
                         statements.equals(((Case) obj).statements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(value, statements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Case{" +
@@ -456,6 +594,11 @@ public abstract class Ast {
                 return statements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof While &&
@@ -463,6 +606,11 @@ public abstract class Ast {
                         statements.equals(((While) obj).statements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, statements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.While{" +
@@ -485,12 +633,22 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
                         value.equals(((Return) obj).value);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(value);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Statement.Return{" +
@@ -504,8 +662,50 @@ public abstract class Ast {
 
     public static abstract class Expression extends Ast {
 
+        private int hash;
+        private boolean shared;
+
         public abstract Environment.Type getType();
 
+        /**
+         * Marks this expression as shared through an {@link
+         * ExpressionFactory}, after which it cannot be typed or resolved.
+         */
+        void share() {
+            shared = true;
+        }
+
+        /**
+         * Throws if this expression is shared through an {@link
+         * ExpressionFactory}. A shared expression stands for every place it
+         * occurs, so a type, variable or slot recorded on it for one of them
+         * would be wrong for, or overwritten by, the others.
+         */
+        final void requireUnshared() {
+            if (shared) {
+                throw new IllegalStateException("Expressions shared through an ExpressionFactory cannot be analyzed or resolved.");
+            }
+        }
+
+        /**
+         * Returns a hash of the structure of this expression, which is cached
+         * since that structure is immutable. Types and variables are left out
+         * as they are set later by the {@link Analyzer}. Equality compares
+         * hashes first, so unequal expressions are usually told apart without
+         * walking their subtrees.
+         */
+        @Override
+        public final int hashCode() {
+            int hash = this.hash;
+            if (hash == 0) {
+                hash = structuralHash();
+                this.hash = hash;
+            }
+            return hash;
+        }
+
+        abstract int structuralHash();
+
         public static final class Literal extends Ast.Expression {
 
             private final Object literal;
@@ -528,18 +728,30 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                requireUnshared();
                 this.type = type;
             }
 
 
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Literal &&
+                return obj == this || obj instanceof Literal &&
+                        hashCode() == obj.hashCode() &&
                         Objects.equals(literal, ((Literal) obj).literal) &&
                         Objects.equals(type, ((Literal) obj).type);
             }
 
+            @Override
+            int structuralHash() {
+                return Objects.hash(literal);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.Literal{" +
@@ -572,17 +784,29 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                requireUnshared();
                 this.type = type;
             }
 
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Group &&
+                return obj == this || obj instanceof Group &&
+                        hashCode() == obj.hashCode() &&
                         expression.equals(((Group) obj).expression) &&
                         Objects.equals(type, ((Group) obj).type);
             }
 
+            @Override
+            int structuralHash() {
+                return Objects.hash(expression);
+            }
+
 
             @Override
             public String toString() {
@@ -628,18 +852,30 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                requireUnshared();
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Binary &&
+                return obj == this || obj instanceof Binary &&
+                        hashCode() == obj.hashCode() &&
                         operator.equals(((Binary) obj).operator) &&
                         left.equals(((Binary) obj).left) &&
                         right.equals(((Binary) obj).right) &&
                         Objects.equals(type, ((Binary) obj).type);
             }
 
+            @Override
+            int structuralHash() {
+                return Objects.hash(operator, left, right);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.Binary{" +
@@ -658,6 +894,8 @@ public abstract class Ast {
             private final Optional<Ast.Expression> offset;
             private final String name;
             private Environment.Variable variable = null;
+            private int slot = -1;
+            private boolean global = false;
 
             public Access(Optional<Ast.Expression> offset, String name) {
                 this.offset = offset;
@@ -680,22 +918,59 @@ public abstract class Ast {
             }
 
             public void setVariable(Environment.Variable variable) {
+                requireUnshared();
                 this.variable = variable;
             }
 
+            /**
+             * Returns the slot of the variable, assigned by the {@link
+             * Resolver}: the slot in the frame of the enclosing function,
+             * or the index of the global if {@link #isGlobal()}. This is -1
+             * if the variable is not declared in the source and is looked up
+             * by name.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                requireUnshared();
+                this.slot = slot;
+            }
+
+            public boolean isGlobal() {
+                return global;
+            }
+
+            public void setGlobal(boolean global) {
+                requireUnshared();
+                this.global = global;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Access &&
+                return obj == this || obj instanceof Access &&
+                        hashCode() == obj.hashCode() &&
                         offset.equals(((Access) obj).offset) &&
                         name.equals(((Access) obj).name) &&
                         Objects.equals(variable, ((Access) obj).variable);
             }
 
+            @Override
+            int structuralHash() {
+                return Objects.hash(offset, name);
+            }
+
 
             @Override
             public String toString() {
@@ -735,6 +1010,7 @@ public abstract class Ast {
             }
 
             public void setFunction(Environment.Function function) {
+                requireUnshared();
                 this.function = function;
             }
 
@@ -743,14 +1019,25 @@ public abstract class Ast {
                 return getFunction().getReturnType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Ast.Expression.Function &&
+                return obj == this || obj instanceof Ast.Expression.Function &&
+                        hashCode() == obj.hashCode() &&
                         name.equals(((Ast.Expression.Function) obj).name) &&
                         arguments.equals(((Ast.Expression.Function) obj).arguments) &&
                         Objects.equals(function, ((Ast.Expression.Function) obj).function);
             }
 
+            @Override
+            int structuralHash() {
+                return Objects.hash(name, arguments);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.Function{" +
@@ -785,16 +1072,28 @@ public abstract class Ast {
             }
 
             public void setType(Environment.Type type) {
+                requireUnshared();
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Ast.Expression.PlcList &&
+                return obj == this || obj instanceof Ast.Expression.PlcList &&
+                        hashCode() == obj.hashCode() &&
                         values.equals(((Ast.Expression.PlcList) obj).values) &&
                         Objects.equals(type, ((Ast.Expression.PlcList) obj).type);
             }
 
+            @Override
+            int structuralHash() {
+                return Objects.hash(values);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expression.PlcList{" +
@@ -809,44 +1108,12 @@ public abstract class Ast {
 
     public interface Visitor<T> {
 
+        /**
+         * Visits a node of any class through {@link Ast#accept(Visitor)},
+         * which calls the method below for its class.
+         */
         default T visit(Ast ast) {
-            if (ast instanceof Ast.Source) {
-                return visit((Ast.Source) ast);
-            } else if (ast instanceof Ast.Global) {
-                return visit((Ast.Global) ast);
-            } else if (ast instanceof Ast.Function) {
-                return visit((Ast.Function) ast);
-            } else if (ast instanceof Ast.Statement.Expression) {
-                return visit((Ast.Statement.Expression) ast);
-            } else if (ast instanceof Ast.Statement.Declaration) {
-                return visit((Ast.Statement.Declaration) ast);
-            } else if (ast instanceof Ast.Statement.Assignment) {
-                return visit((Ast.Statement.Assignment) ast);
-            } else if (ast instanceof Ast.Statement.If) {
-                return visit((Ast.Statement.If) ast);
-            } else if (ast instanceof Ast.Statement.Switch) {
-                return visit((Ast.Statement.Switch) ast);
-            } else if (ast instanceof Ast.Statement.Case) {
-                return visit((Ast.Statement.Case) ast);
-            } else if (ast instanceof Ast.Statement.While) {
-                return visit((Ast.Statement.While) ast);
-            } else if (ast instanceof Ast.Statement.Return) {
-                return visit((Ast.Statement.Return) ast);
-            } else if (ast instanceof Ast.Expression.Literal) {
-                return visit((Ast.Expression.Literal) ast);
-            } else if (ast instanceof Ast.Expression.Group) {
-                return visit((Ast.Expression.Group) ast);
-            } else if (ast instanceof Ast.Expression.Binary) {
-                return visit((Ast.Expression.Binary) ast);
-            } else if (ast instanceof Ast.Expression.Access) {
-                return visit((Ast.Expression.Access) ast);
-            } else if (ast instanceof Ast.Expression.Function) {
-                return visit((Ast.Expression.Function) ast);
-            } else if (ast instanceof Ast.Expression.PlcList) {
-                return visit((Ast.Expression.PlcList) ast);
-            } else {
-                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
-            }
+            return ast.accept(this);
         }
 
         T visit(Ast.Source ast);
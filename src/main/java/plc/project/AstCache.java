@@ -0,0 +1,147 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * An on-disk cache of parsed sources, so that unchanged scripts are loaded
+ * instead of lexed and parsed again. Each source is stored in its own file
+ * named by the SHA-256 hash of its contents, holding a header and the {@link
+ * FlatAst} encoding of its {@link Ast.Source}. Files are read whole rather
+ * than memory mapped, since a mapped file cannot be replaced on Windows, and
+ * written to a temporary file first, so a reader never sees a partial file.
+ *
+ * The header holds a magic number, the {@link #VERSION}, the hash of the
+ * source and a CRC32C checksum of the encoding. A file from another version,
+ * for another source, that fails its checksum or that fails to decode is
+ * treated as missing and replaced on the next {@link #load(String)}.
+ */
+public final class AstCache {
+
+    /**
+     * The version of the file format and of the parser output it stores,
+     * which must be incremented whenever either changes.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x504C4341;
+    private static final String EXTENSION = ".ast";
+
+    private final Path directory;
+
+    public AstCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the source parsed from {@code input}, loading it from the cache
+     * if present and otherwise parsing and storing it. Errors from parsing
+     * are thrown as usual and nothing is stored.
+     */
+    public Ast.Source load(String input) throws IOException {
+        byte[] hash = hash(input);
+        Optional<Ast.Source> cached = get(hash);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        put(hash, source);
+        return source;
+    }
+
+    /**
+     * Returns the cached source for {@code input}, if present and valid.
+     */
+    public Optional<Ast.Source> get(String input) throws IOException {
+        return get(hash(input));
+    }
+
+    /**
+     * Stores {@code source} as the parsed form of {@code input}.
+     */
+    public void put(String input, Ast.Source source) throws IOException {
+        put(hash(input), source);
+    }
+
+    private Optional<Ast.Source> get(byte[] hash) throws IOException {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(path(hash)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Optional.empty();
+            }
+            byte[] stored = new byte[hash.length];
+            buffer.get(stored);
+            int checksum = buffer.getInt();
+            if (!Arrays.equals(stored, hash) || checksum(buffer.slice()) != checksum) {
+                return Optional.empty();
+            }
+            Ast ast = FlatAst.read(buffer).toAst();
+            return ast instanceof Ast.Source ? Optional.of((Ast.Source) ast) : Optional.empty();
+        } catch (RuntimeException e) {
+            // A truncated or corrupt file is a miss, and is overwritten by the next load.
+            return Optional.empty();
+        }
+    }
+
+    private void put(byte[] hash, Ast.Source source) throws IOException {
+        ByteArrayOutputStream encoding = new ByteArrayOutputStream();
+        FlatAst.of(source).write(new DataOutputStream(encoding));
+        byte[] bytes = encoding.toByteArray();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "ast", ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporary)) {
+                DataOutputStream output = new DataOutputStream(stream);
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.write(hash);
+                output.writeInt(checksum(ByteBuffer.wrap(bytes)));
+                output.write(bytes);
+            }
+            Files.move(temporary, path(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path path(byte[] hash) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return directory.resolve(name.append(EXTENSION).toString());
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] hash(String input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is required to be supported.", e);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the literal constants of a single compilation, as the {@link
+ * SymbolTable} does for identifiers. Each distinct constant is stored once and
+ * given a dense integer id, so equal literals in the AST are the same instance
+ * and later stages can refer to them by id.
+ *
+ * Constants are looked up by the literal of their token first, so a literal
+ * that has been seen before is neither parsed nor unescaped again. Integers
+ * from {@code -128} to {@code 1023} are canonical across compilations.
+ */
+public final class ConstantPool {
+
+    private static final int SMALL_MIN = -128;
+    private static final BigInteger[] SMALL_INTEGERS = new BigInteger[1024 - SMALL_MIN];
+
+    static {
+        for (int i = 0; i < SMALL_INTEGERS.length; i++) {
+            SMALL_INTEGERS[i] = BigInteger.valueOf(i + SMALL_MIN);
+        }
+    }
+
+    /**
+     * Ids by token literal. Literals of different types never coincide, since
+     * characters and strings keep their quotes and decimals their point.
+     */
+    private final Map<String, Integer> literals = new HashMap<>();
+    private final Map<Object, Integer> ids = new HashMap<>();
+    private Object[] constants = new Object[64];
+    private int size = 0;
+
+    /**
+     * Returns the canonical constant for the literal of a token of the given
+     * type, which must be an {@code INTEGER}, {@code DECIMAL}, {@code
+     * CHARACTER} or {@code STRING}.
+     */
+    public Object intern(Token.Type type, String literal) {
+        int id = id(type, literal);
+        return constants[id];
+    }
+
+    /**
+     * Returns the id of the constant for the literal of a token of the given
+     * type, adding it to the pool if it has not been seen before.
+     */
+    public int id(Token.Type type, String literal) {
+        Integer id = literals.get(literal);
+        if (id == null) {
+            id = id(parse(type, literal));
+            literals.put(literal, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the given constant, adding it to the pool if it has
+     * not been seen before.
+     */
+    public int id(Object constant) {
+        Integer id = ids.get(constant);
+        if (id == null) {
+            if (size == constants.length) {
+                constants = Arrays.copyOf(constants, size * 2);
+            }
+            constants[size] = constant;
+            id = size++;
+            ids.put(constant, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the given constant, or -1 if it is not in the pool.
+     */
+    public int lookup(Object constant) {
+        Integer id = ids.get(constant);
+        return id == null ? -1 : id;
+    }
+
+    public Object getConstant(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Index " + id + " out of bounds for length " + size);
+        }
+        return constants[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Object parse(Token.Type type, String literal) {
+        switch (type) {
+            case INTEGER:
+                return parseInteger(literal);
+            case DECIMAL:
+                return new BigDecimal(literal);
+            case CHARACTER:
+                String character = unescape(literal);
+                if (character.length() != 1) {
+                    throw new IllegalArgumentException("Invalid character literal: " + literal);
+                }
+                return character.charAt(0);
+            case STRING:
+                return unescape(literal);
+            default:
+                throw new IllegalArgumentException("Not a literal: " + type);
+        }
+    }
+
+    private static BigInteger parseInteger(String literal) {
+        // Up to 18 digits always fit in a long, which avoids BigInteger's parser.
+        if (literal.length() > 18) {
+            return new BigInteger(literal);
+        }
+        long value = Long.parseLong(literal);
+        if (value >= SMALL_MIN && value < SMALL_MIN + SMALL_INTEGERS.length) {
+            return SMALL_INTEGERS[(int) value - SMALL_MIN];
+        }
+        return BigInteger.valueOf(value);
+    }
+
+    /**
+     * Removes the quotes around a character or string literal and replaces its
+     * escape sequences in a single pass.
+     */
+    private static String unescape(String literal) {
+        int end = literal.length() - 1;
+        int escape = literal.indexOf('\\', 1);
+        if (escape < 0 || escape >= end) {
+            return literal.substring(1, end);
+        }
+        StringBuilder builder = new StringBuilder(end - 1);
+        builder.append(literal, 1, escape);
+        for (int i = escape; i < end; i++) {
+            char c = literal.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = literal.charAt(++i);
+                switch (c) {
+                    case 'b': c = '\b'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case '\'':
+                    case '"':
+                    case '\\':
+                        break;
+                    default:
+                        // Not produced by the lexer, so kept as written.
+                        builder.append('\\');
+                        break;
+                }
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+}
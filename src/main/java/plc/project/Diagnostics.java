@@ -0,0 +1,73 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of errors, each a message and the index it applies to,
+ * collected instead of throwing a {@link ParseException} for each one. The
+ * messages and indices are stored in parallel arrays, so once the buffer has
+ * grown, recording an error does not allocate. Call {@link #clear()} to reuse
+ * the buffer for the next input.
+ */
+public final class Diagnostics {
+
+    private String[] messages = new String[8];
+    private int[] indices = new int[8];
+    private int size = 0;
+
+    public void add(String message, int index) {
+        if (size == messages.length) {
+            messages = Arrays.copyOf(messages, size * 2);
+            indices = Arrays.copyOf(indices, size * 2);
+        }
+        messages[size] = message;
+        indices[size] = index;
+        size++;
+    }
+
+    public String getMessage(int index) {
+        return messages[checkIndex(index)];
+    }
+
+    public int getIndex(int index) {
+        return indices[checkIndex(index)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(messages, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the error at {@code index} as a {@link ParseException}, for
+     * callers that still need to throw it.
+     */
+    public ParseException toException(int index) {
+        return new ParseException(getMessage(index), getIndex(index));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            builder.append(i == 0 ? "" : ", ").append(messages[i]).append("@").append(indices[i]);
+        }
+        return builder.append("]").toString();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return index;
+    }
+
+}
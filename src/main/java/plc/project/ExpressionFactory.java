@@ -0,0 +1,209 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Creates {@link Ast.Expression}s by hash-consing, as the {@link ConstantPool}
+ * does for literals. Structurally equal expressions created through the same
+ * factory are the same instance, so a repeated subexpression is stored once
+ * and equal subtrees compare by identity. This makes expressions practical as
+ * keys of caches and memo tables.
+ *
+ * The children passed to the factory methods should themselves come from the
+ * factory. Then each lookup only compares a node's own fields and the
+ * identity of its children. {@link #intern(Ast.Expression)} and {@link
+ * #intern(Ast.Source)} rebuild a parsed tree this way from the leaves up.
+ *
+ * Shared expressions stay untyped and unresolved. The {@link Analyzer}
+ * records types and variables and the {@link Resolver} slots on the nodes
+ * themselves, which would be wrong for a node standing for several places,
+ * so both throw an {@link IllegalStateException} on an expression created by
+ * a factory. Interning does not keep types or slots of the original tree.
+ */
+public final class ExpressionFactory {
+
+    private final Map<Ast.Expression, Ast.Expression> expressions = new HashMap<>();
+    private final Interner interner = new Interner();
+
+    public Ast.Expression.Literal literal(Object literal) {
+        return canonical(new Ast.Expression.Literal(literal));
+    }
+
+    public Ast.Expression.Group group(Ast.Expression expression) {
+        return canonical(new Ast.Expression.Group(expression));
+    }
+
+    public Ast.Expression.Binary binary(String operator, Ast.Expression left, Ast.Expression right) {
+        return canonical(new Ast.Expression.Binary(operator, left, right));
+    }
+
+    public Ast.Expression.Access access(Optional<Ast.Expression> offset, String name) {
+        return canonical(new Ast.Expression.Access(offset, name));
+    }
+
+    public Ast.Expression.Function function(String name, List<Ast.Expression> arguments) {
+        return canonical(new Ast.Expression.Function(name, List.copyOf(arguments)));
+    }
+
+    public Ast.Expression.PlcList list(List<Ast.Expression> values) {
+        return canonical(new Ast.Expression.PlcList(List.copyOf(values)));
+    }
+
+    /**
+     * Returns the canonical expression equal to the given untyped one,
+     * interning each of its subexpressions.
+     */
+    public Ast.Expression intern(Ast.Expression expression) {
+        return (Ast.Expression) interner.visit(expression);
+    }
+
+    /**
+     * Returns a copy of the given untyped source in which every expression is
+     * interned. Other nodes are copied, not shared.
+     */
+    public Ast.Source intern(Ast.Source source) {
+        return interner.visit(source);
+    }
+
+    /**
+     * Returns the number of distinct expressions created so far.
+     */
+    public int size() {
+        return expressions.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Ast.Expression> T canonical(T expression) {
+        Ast.Expression existing = expressions.putIfAbsent(expression, expression);
+        if (existing != null) {
+            return (T) existing;
+        }
+        expression.share();
+        return expression;
+    }
+
+    private Optional<Ast.Expression> intern(Optional<Ast.Expression> expression) {
+        return expression.map(this::intern);
+    }
+
+    /**
+     * Interns each of the given expressions into an immutable list, which
+     * the factory methods then use without copying.
+     */
+    private List<Ast.Expression> internAll(List<Ast.Expression> expressions) {
+        Ast.Expression[] interned = new Ast.Expression[expressions.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = intern(expressions.get(i));
+        }
+        return List.of(interned);
+    }
+
+    /**
+     * Rebuilds a tree with its expressions created through the factory.
+     */
+    private final class Interner implements Ast.Visitor<Ast> {
+
+        private <T extends Ast> List<T> visitAll(List<T> asts) {
+            List<T> copies = new ArrayList<>(asts.size());
+            for (T ast : asts) {
+                @SuppressWarnings("unchecked")
+                T copy = (T) visit(ast);
+                copies.add(copy);
+            }
+            return copies;
+        }
+
+        @Override
+        public Ast.Source visit(Ast.Source ast) {
+            return new Ast.Source(visitAll(ast.getGlobals()), visitAll(ast.getFunctions()));
+        }
+
+        @Override
+        public Ast visit(Ast.Global ast) {
+            return new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), intern(ast.getValue()));
+        }
+
+        @Override
+        public Ast visit(Ast.Function ast) {
+            return new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(),
+                    ast.getReturnTypeName(), visitAll(ast.getStatements()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Expression ast) {
+            return new Ast.Statement.Expression(intern(ast.getExpression()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Declaration ast) {
+            return new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), intern(ast.getValue()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Assignment ast) {
+            return new Ast.Statement.Assignment(intern(ast.getReceiver()), intern(ast.getValue()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.If ast) {
+            return new Ast.Statement.If(intern(ast.getCondition()),
+                    visitAll(ast.getThenStatements()), visitAll(ast.getElseStatements()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Switch ast) {
+            return new Ast.Statement.Switch(intern(ast.getCondition()), visitAll(ast.getCases()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Case ast) {
+            return new Ast.Statement.Case(intern(ast.getValue()), visitAll(ast.getStatements()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.While ast) {
+            return new Ast.Statement.While(intern(ast.getCondition()), visitAll(ast.getStatements()));
+        }
+
+        @Override
+        public Ast visit(Ast.Statement.Return ast) {
+            return new Ast.Statement.Return(intern(ast.getValue()));
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Literal ast) {
+            return literal(ast.getLiteral());
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Group ast) {
+            return group(intern(ast.getExpression()));
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Binary ast) {
+            return binary(ast.getOperator(), intern(ast.getLeft()), intern(ast.getRight()));
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Access ast) {
+            return access(intern(ast.getOffset()), ast.getName());
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.Function ast) {
+            return function(ast.getName(), internAll(ast.getArguments()));
+        }
+
+        @Override
+        public Ast visit(Ast.Expression.PlcList ast) {
+            return list(internAll(ast.getValues()));
+        }
+
+    }
+
+}
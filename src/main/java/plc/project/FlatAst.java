@@ -0,0 +1,817 @@
+package plc.project;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A compact, immutable encoding of an {@link Ast}. Instead of one object per
+ * node with its own {@code List}s and {@code Optional}s, the nodes are
+ * numbered in post-order and stored in parallel arrays: the kind, an {@code
+ * int} of data, and a range of the {@link #children} array holding the ids of
+ * the node's children. Names, operators and literal values are kept in a side
+ * table of literals, where equal values share an entry.
+ *
+ * A node costs 13 bytes plus 4 for its id in its parent's range. The layout
+ * of the data and children of each kind is documented on {@link Kind}.
+ * Nodes are read through the accessors taking a node id, or walked with a
+ * {@link Visitor} through {@link #visit(Visitor, int)}; neither creates
+ * {@link Ast} objects. Use {@link #of(Ast)} and {@link #toAst()} to convert
+ * from and to the {@link Ast} classes, and {@link #write(DataOutput)} and
+ * {@link #read(ByteBuffer)} to store the encoding. The values set by the
+ * {@link Analyzer} (variables, functions and types) are not encoded.
+ */
+public final class FlatAst {
+
+    public enum Kind {
+        /** Data is the number of globals; children are the globals, then the functions. */
+        SOURCE,
+        /** Data is the literals name, type name and mutable; the child is the value, if any. */
+        GLOBAL,
+        /** Data is the literals name, parameters, parameter type names and return type name (or null); children are the statements. */
+        FUNCTION,
+        /** The child is the expression. */
+        EXPRESSION_STATEMENT,
+        /** Data is the literals name and type name (or null); the child is the value, if any. */
+        DECLARATION,
+        /** Children are the receiver and the value. */
+        ASSIGNMENT,
+        /** Data is the number of then statements; children are the condition, then the then and else statements. */
+        IF,
+        /** Children are the condition, then the cases. */
+        SWITCH,
+        /** Data is 1 if the case has a value; children are the value, if any, then the statements. */
+        CASE,
+        /** Children are the condition, then the statements. */
+        WHILE,
+        /** The child is the value. */
+        RETURN,
+        /** Data is the literal value. */
+        LITERAL,
+        /** The child is the expression. */
+        GROUP,
+        /** Data is the literal operator; children are the left and right operands. */
+        BINARY,
+        /** Data is the literal name; the child is the offset, if any. */
+        ACCESS,
+        /** Data is the literal name; children are the arguments. */
+        CALL,
+        /** Children are the values. */
+        LIST,
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte CHARACTER = 5;
+    private static final byte STRING = 6;
+    private static final byte STRINGS = 7;
+
+    private byte[] kinds = new byte[16];
+    private int[] data = new int[16];
+    private int[] firsts = new int[16];
+    private int[] counts = new int[16];
+    private int size = 0;
+
+    private int[] children = new int[16];
+    private int childrenSize = 0;
+
+    private Object[] literals = new Object[16];
+    private int literalsSize = 0;
+
+    private FlatAst() {}
+
+    /**
+     * Encodes the given node and everything under it.
+     */
+    public static FlatAst of(Ast ast) {
+        FlatAst flat = new FlatAst();
+        new Encoder(flat).visit(ast);
+        // Trimming the arrays also lets their bounds checks reject invalid ids.
+        flat.kinds = Arrays.copyOf(flat.kinds, flat.size);
+        flat.data = Arrays.copyOf(flat.data, flat.size);
+        flat.firsts = Arrays.copyOf(flat.firsts, flat.size);
+        flat.counts = Arrays.copyOf(flat.counts, flat.size);
+        flat.children = Arrays.copyOf(flat.children, flat.childrenSize);
+        flat.literals = Arrays.copyOf(flat.literals, flat.literalsSize);
+        return flat;
+    }
+
+    /**
+     * Writes the encoding for {@link #read(ByteBuffer)}: the node, child and
+     * literal counts, the kinds, child counts, data and children arrays, then
+     * each literal as a tag byte and its value. The start of each node's
+     * child range is not written since it is the sum of the previous counts.
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(size);
+        output.writeInt(childrenSize);
+        output.writeInt(literalsSize);
+        output.write(kinds, 0, size);
+        for (int i = 0; i < size; i++) {
+            output.writeInt(counts[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            output.writeInt(data[i]);
+        }
+        for (int i = 0; i < childrenSize; i++) {
+            output.writeInt(children[i]);
+        }
+        for (int i = 0; i < literalsSize; i++) {
+            writeLiteral(output, literals[i]);
+        }
+    }
+
+    /**
+     * Reads an encoding written by {@link #write(DataOutput)} from the
+     * buffer's position, such as a memory mapped file. Throws an {@link
+     * IllegalArgumentException} if the node arrays are inconsistent.
+     */
+    public static FlatAst read(ByteBuffer buffer) {
+        FlatAst flat = new FlatAst();
+        flat.size = buffer.getInt();
+        flat.childrenSize = buffer.getInt();
+        flat.literalsSize = buffer.getInt();
+        if (flat.size <= 0 || flat.childrenSize < 0 || flat.literalsSize < 0 || flat.size > buffer.remaining()
+                || flat.literalsSize > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid sizes " + flat.size + ", " + flat.childrenSize + ", " + flat.literalsSize + ".");
+        }
+        flat.kinds = new byte[flat.size];
+        buffer.get(flat.kinds);
+        flat.counts = readInts(buffer, flat.size);
+        flat.data = readInts(buffer, flat.size);
+        flat.children = readInts(buffer, flat.childrenSize);
+        flat.firsts = new int[flat.size];
+        int first = 0;
+        for (int i = 0; i < flat.size; i++) {
+            if (flat.kinds[i] < 0 || flat.kinds[i] >= KINDS.length || flat.counts[i] < 0 || flat.counts[i] > flat.childrenSize - first) {
+                throw new IllegalArgumentException("Invalid node " + i + ".");
+            }
+            int literals = literalCount(KINDS[flat.kinds[i]]);
+            if (literals > 0 && (flat.data[i] < 0 || flat.data[i] > flat.literalsSize - literals)) {
+                throw new IllegalArgumentException("Invalid literal of node " + i + ".");
+            }
+            // Children are numbered before their parent.
+            for (int j = first; j < first + flat.counts[i]; j++) {
+                if (flat.children[j] < 0 || flat.children[j] >= i) {
+                    throw new IllegalArgumentException("Invalid child of node " + i + ".");
+                }
+            }
+            flat.firsts[i] = first;
+            first += flat.counts[i];
+        }
+        flat.literals = new Object[flat.literalsSize];
+        for (int i = 0; i < flat.literalsSize; i++) {
+            flat.literals[i] = readLiteral(buffer);
+        }
+        return flat;
+    }
+
+    /**
+     * Returns the number of literals the data of a node of the given kind
+     * refers to.
+     */
+    private static int literalCount(Kind kind) {
+        switch (kind) {
+            case GLOBAL: return 3;
+            case FUNCTION: return 4;
+            case DECLARATION: return 2;
+            case LITERAL:
+            case BINARY:
+            case ACCESS:
+            case CALL:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining() / Integer.BYTES) {
+            throw new IllegalArgumentException("Invalid length " + length + ".");
+        }
+        int[] ints = new int[length];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return ints;
+    }
+
+    private static void writeLiteral(DataOutput output, Object literal) throws IOException {
+        if (literal == null) {
+            output.writeByte(NULL);
+        } else if (literal instanceof Boolean) {
+            output.writeByte((Boolean) literal ? TRUE : FALSE);
+        } else if (literal instanceof BigInteger) {
+            output.writeByte(INTEGER);
+            writeBytes(output, ((BigInteger) literal).toByteArray());
+        } else if (literal instanceof BigDecimal) {
+            output.writeByte(DECIMAL);
+            output.writeInt(((BigDecimal) literal).scale());
+            writeBytes(output, ((BigDecimal) literal).unscaledValue().toByteArray());
+        } else if (literal instanceof Character) {
+            output.writeByte(CHARACTER);
+            output.writeChar((Character) literal);
+        } else if (literal instanceof String) {
+            output.writeByte(STRING);
+            writeBytes(output, ((String) literal).getBytes(StandardCharsets.UTF_8));
+        } else if (literal instanceof List) {
+            output.writeByte(STRINGS);
+            output.writeInt(((List<?>) literal).size());
+            for (Object string : (List<?>) literal) {
+                writeBytes(output, ((String) string).getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported literal " + literal.getClass().getName() + ".");
+        }
+    }
+
+    private static Object readLiteral(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case INTEGER:
+                return new BigInteger(readBytes(buffer));
+            case DECIMAL:
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            case CHARACTER:
+                return buffer.getChar();
+            case STRING:
+                return new String(readBytes(buffer), StandardCharsets.UTF_8);
+            case STRINGS:
+                int size = buffer.getInt();
+                List<String> strings = new ArrayList<>(Math.min(size, buffer.remaining() / Integer.BYTES));
+                for (int i = 0; i < size; i++) {
+                    strings.add(new String(readBytes(buffer), StandardCharsets.UTF_8));
+                }
+                return strings;
+            default:
+                throw new IllegalArgumentException("Invalid literal tag " + tag + ".");
+        }
+    }
+
+    private static void writeBytes(DataOutput output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length + ".");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the id of the encoded node, which is the last one since nodes
+     * are numbered in post-order.
+     */
+    public int getRoot() {
+        return size - 1;
+    }
+
+    public Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /**
+     * Returns the data of the node, which is a count or the index of its first
+     * literal depending on its kind.
+     */
+    public int getData(int node) {
+        return data[node];
+    }
+
+    public int getChildCount(int node) {
+        return counts[node];
+    }
+
+    public int getChild(int node, int index) {
+        if (index < 0 || index >= counts[node]) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + counts[node]);
+        }
+        return children[firsts[node] + index];
+    }
+
+    /**
+     * Returns the value of a {@code LITERAL} node.
+     */
+    public Object getLiteral(int node) {
+        return literal(node, Kind.LITERAL, 0);
+    }
+
+    /**
+     * Returns the operator of a {@code BINARY} node.
+     */
+    public String getOperator(int node) {
+        return (String) literal(node, Kind.BINARY, 0);
+    }
+
+    /**
+     * Returns the name of a {@code GLOBAL}, {@code FUNCTION}, {@code
+     * DECLARATION}, {@code ACCESS} or {@code CALL} node.
+     */
+    public String getName(int node) {
+        switch (getKind(node)) {
+            case GLOBAL:
+            case FUNCTION:
+            case DECLARATION:
+            case ACCESS:
+            case CALL:
+                return (String) literals[data[node]];
+            default:
+                throw new IllegalArgumentException("Node " + node + " of kind " + getKind(node) + " has no name.");
+        }
+    }
+
+    /**
+     * Returns the type name of a {@code GLOBAL} or {@code DECLARATION} node,
+     * which is null for a declaration without one.
+     */
+    public String getTypeName(int node) {
+        return (String) literal(node, getKind(node) == Kind.GLOBAL ? Kind.GLOBAL : Kind.DECLARATION, 1);
+    }
+
+    public boolean getMutable(int node) {
+        return (Boolean) literal(node, Kind.GLOBAL, 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getParameters(int node) {
+        return (List<String>) literal(node, Kind.FUNCTION, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getParameterTypeNames(int node) {
+        return (List<String>) literal(node, Kind.FUNCTION, 2);
+    }
+
+    public Optional<String> getReturnTypeName(int node) {
+        return Optional.ofNullable((String) literal(node, Kind.FUNCTION, 3));
+    }
+
+    /**
+     * Calls the method of the visitor for the node's kind.
+     */
+    public <T> T visit(Visitor<T> visitor, int node) {
+        switch (getKind(node)) {
+            case SOURCE: return visitor.visitSource(node);
+            case GLOBAL: return visitor.visitGlobal(node);
+            case FUNCTION: return visitor.visitFunction(node);
+            case EXPRESSION_STATEMENT: return visitor.visitExpressionStatement(node);
+            case DECLARATION: return visitor.visitDeclaration(node);
+            case ASSIGNMENT: return visitor.visitAssignment(node);
+            case IF: return visitor.visitIf(node);
+            case SWITCH: return visitor.visitSwitch(node);
+            case CASE: return visitor.visitCase(node);
+            case WHILE: return visitor.visitWhile(node);
+            case RETURN: return visitor.visitReturn(node);
+            case LITERAL: return visitor.visitLiteral(node);
+            case GROUP: return visitor.visitGroup(node);
+            case BINARY: return visitor.visitBinary(node);
+            case ACCESS: return visitor.visitAccess(node);
+            case CALL: return visitor.visitCall(node);
+            case LIST: return visitor.visitList(node);
+            default: throw new AssertionError("Unimplemented node kind: " + getKind(node) + ".");
+        }
+    }
+
+    /**
+     * Decodes the root into new {@link Ast} objects.
+     */
+    public Ast toAst() {
+        return toAst(getRoot());
+    }
+
+    /**
+     * Decodes the given node and everything under it into new {@link Ast}
+     * objects.
+     */
+    public Ast toAst(int node) {
+        return visit(new Decoder(this), node);
+    }
+
+    private Object literal(int node, Kind kind, int offset) {
+        if (kinds[node] != kind.ordinal()) {
+            throw new IllegalArgumentException("Node " + node + " of kind " + getKind(node) + " is not a " + kind + ".");
+        }
+        return literals[data[node] + offset];
+    }
+
+    /**
+     * Walks a {@link FlatAst} by node id, with one method per {@link Kind}.
+     * Implementations hold the tree they walk and recurse through {@link
+     * FlatAst#visit(Visitor, int)}.
+     */
+    public interface Visitor<T> {
+
+        T visitSource(int node);
+
+        T visitGlobal(int node);
+
+        T visitFunction(int node);
+
+        T visitExpressionStatement(int node);
+
+        T visitDeclaration(int node);
+
+        T visitAssignment(int node);
+
+        T visitIf(int node);
+
+        T visitSwitch(int node);
+
+        T visitCase(int node);
+
+        T visitWhile(int node);
+
+        T visitReturn(int node);
+
+        T visitLiteral(int node);
+
+        T visitGroup(int node);
+
+        T visitBinary(int node);
+
+        T visitAccess(int node);
+
+        T visitCall(int node);
+
+        T visitList(int node);
+    }
+
+    /**
+     * Appends nodes in post-order. The ids of the children of the node being
+     * encoded are pushed onto a stack, then moved into its range of the
+     * children array once the node is added.
+     */
+    private static final class Encoder implements Ast.Visitor<Integer> {
+
+        private final FlatAst flat;
+        private final Map<Object, Integer> shared = new HashMap<>();
+        private int[] stack = new int[16];
+        private int depth = 0;
+
+        private Encoder(FlatAst flat) {
+            this.flat = flat;
+        }
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            int mark = depth;
+            ast.getGlobals().forEach(this::push);
+            ast.getFunctions().forEach(this::push);
+            return add(Kind.SOURCE, ast.getGlobals().size(), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Global ast) {
+            int mark = depth;
+            ast.getValue().ifPresent(this::push);
+            return add(Kind.GLOBAL, literals(ast.getName(), ast.getTypeName(), ast.getMutable()), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Function ast) {
+            int mark = depth;
+            ast.getStatements().forEach(this::push);
+            return add(Kind.FUNCTION, literals(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(),
+                    ast.getReturnTypeName().orElse(null)), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Expression ast) {
+            int mark = depth;
+            push(ast.getExpression());
+            return add(Kind.EXPRESSION_STATEMENT, 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Declaration ast) {
+            int mark = depth;
+            ast.getValue().ifPresent(this::push);
+            return add(Kind.DECLARATION, literals(ast.getName(), ast.getTypeName().orElse(null)), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Assignment ast) {
+            int mark = depth;
+            push(ast.getReceiver());
+            push(ast.getValue());
+            return add(Kind.ASSIGNMENT, 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.If ast) {
+            int mark = depth;
+            push(ast.getCondition());
+            ast.getThenStatements().forEach(this::push);
+            ast.getElseStatements().forEach(this::push);
+            return add(Kind.IF, ast.getThenStatements().size(), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Switch ast) {
+            int mark = depth;
+            push(ast.getCondition());
+            ast.getCases().forEach(this::push);
+            return add(Kind.SWITCH, 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Case ast) {
+            int mark = depth;
+            ast.getValue().ifPresent(this::push);
+            ast.getStatements().forEach(this::push);
+            return add(Kind.CASE, ast.getValue().isPresent() ? 1 : 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.While ast) {
+            int mark = depth;
+            push(ast.getCondition());
+            ast.getStatements().forEach(this::push);
+            return add(Kind.WHILE, 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Statement.Return ast) {
+            int mark = depth;
+            push(ast.getValue());
+            return add(Kind.RETURN, 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Literal ast) {
+            return add(Kind.LITERAL, literal(ast.getLiteral()), depth);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Group ast) {
+            int mark = depth;
+            push(ast.getExpression());
+            return add(Kind.GROUP, 0, mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Binary ast) {
+            int mark = depth;
+            push(ast.getLeft());
+            push(ast.getRight());
+            return add(Kind.BINARY, literal(ast.getOperator()), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Access ast) {
+            int mark = depth;
+            ast.getOffset().ifPresent(this::push);
+            return add(Kind.ACCESS, literal(ast.getName()), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.Function ast) {
+            int mark = depth;
+            ast.getArguments().forEach(this::push);
+            return add(Kind.CALL, literal(ast.getName()), mark);
+        }
+
+        @Override
+        public Integer visit(Ast.Expression.PlcList ast) {
+            int mark = depth;
+            ast.getValues().forEach(this::push);
+            return add(Kind.LIST, 0, mark);
+        }
+
+        /**
+         * Encodes a child, pushing its id for the node being encoded.
+         */
+        private void push(Ast child) {
+            int id = visit(child);
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = id;
+        }
+
+        /**
+         * Adds a node whose children are the ids pushed since {@code mark},
+         * returning its id.
+         */
+        private int add(Kind kind, int value, int mark) {
+            int count = depth - mark;
+            if (flat.childrenSize + count > flat.children.length) {
+                flat.children = Arrays.copyOf(flat.children, Math.max(flat.childrenSize + count, flat.children.length * 2));
+            }
+            System.arraycopy(stack, mark, flat.children, flat.childrenSize, count);
+            depth = mark;
+            if (flat.size == flat.kinds.length) {
+                flat.kinds = Arrays.copyOf(flat.kinds, flat.size * 2);
+                flat.data = Arrays.copyOf(flat.data, flat.size * 2);
+                flat.firsts = Arrays.copyOf(flat.firsts, flat.size * 2);
+                flat.counts = Arrays.copyOf(flat.counts, flat.size * 2);
+            }
+            flat.kinds[flat.size] = (byte) kind.ordinal();
+            flat.data[flat.size] = value;
+            flat.firsts[flat.size] = flat.childrenSize;
+            flat.counts[flat.size] = count;
+            flat.childrenSize += count;
+            return flat.size++;
+        }
+
+        /**
+         * Returns the index of a single literal, shared with equal literals.
+         */
+        private int literal(Object value) {
+            Integer index = shared.get(value);
+            if (index == null) {
+                index = literals(value);
+                shared.put(value, index);
+            }
+            return index;
+        }
+
+        /**
+         * Appends consecutive literals, returning the index of the first.
+         */
+        private int literals(Object... values) {
+            if (flat.literalsSize + values.length > flat.literals.length) {
+                flat.literals = Arrays.copyOf(flat.literals, Math.max(flat.literalsSize + values.length, flat.literals.length * 2));
+            }
+            System.arraycopy(values, 0, flat.literals, flat.literalsSize, values.length);
+            flat.literalsSize += values.length;
+            return flat.literalsSize - values.length;
+        }
+
+    }
+
+    private static final class Decoder implements Visitor<Ast> {
+
+        private final FlatAst flat;
+
+        private Decoder(FlatAst flat) {
+            this.flat = flat;
+        }
+
+        @Override
+        public Ast visitSource(int node) {
+            int globals = flat.getData(node);
+            List<Ast.Global> decodedGlobals = new ArrayList<>();
+            List<Ast.Function> decodedFunctions = new ArrayList<>();
+            for (int i = 0; i < flat.getChildCount(node); i++) {
+                if (i < globals) {
+                    decodedGlobals.add((Ast.Global) child(node, i));
+                } else {
+                    decodedFunctions.add((Ast.Function) child(node, i));
+                }
+            }
+            return new Ast.Source(decodedGlobals, decodedFunctions);
+        }
+
+        @Override
+        public Ast visitGlobal(int node) {
+            return new Ast.Global(flat.getName(node), flat.getTypeName(node), flat.getMutable(node), optional(node, 0));
+        }
+
+        @Override
+        public Ast visitFunction(int node) {
+            return new Ast.Function(flat.getName(node), flat.getParameters(node), flat.getParameterTypeNames(node),
+                    flat.getReturnTypeName(node), statements(node, 0, flat.getChildCount(node)));
+        }
+
+        @Override
+        public Ast visitExpressionStatement(int node) {
+            return new Ast.Statement.Expression(expression(node, 0));
+        }
+
+        @Override
+        public Ast visitDeclaration(int node) {
+            return new Ast.Statement.Declaration(flat.getName(node), Optional.ofNullable(flat.getTypeName(node)), optional(node, 0));
+        }
+
+        @Override
+        public Ast visitAssignment(int node) {
+            return new Ast.Statement.Assignment(expression(node, 0), expression(node, 1));
+        }
+
+        @Override
+        public Ast visitIf(int node) {
+            int then = 1 + flat.getData(node);
+            return new Ast.Statement.If(expression(node, 0), statements(node, 1, then),
+                    statements(node, then, flat.getChildCount(node)));
+        }
+
+        @Override
+        public Ast visitSwitch(int node) {
+            List<Ast.Statement.Case> cases = new ArrayList<>();
+            for (int i = 1; i < flat.getChildCount(node); i++) {
+                cases.add((Ast.Statement.Case) child(node, i));
+            }
+            return new Ast.Statement.Switch(expression(node, 0), cases);
+        }
+
+        @Override
+        public Ast visitCase(int node) {
+            int value = flat.getData(node);
+            return new Ast.Statement.Case(value == 1 ? optional(node, 0) : Optional.empty(),
+                    statements(node, value, flat.getChildCount(node)));
+        }
+
+        @Override
+        public Ast visitWhile(int node) {
+            return new Ast.Statement.While(expression(node, 0), statements(node, 1, flat.getChildCount(node)));
+        }
+
+        @Override
+        public Ast visitReturn(int node) {
+            return new Ast.Statement.Return(expression(node, 0));
+        }
+
+        @Override
+        public Ast visitLiteral(int node) {
+            return new Ast.Expression.Literal(flat.getLiteral(node));
+        }
+
+        @Override
+        public Ast visitGroup(int node) {
+            return new Ast.Expression.Group(expression(node, 0));
+        }
+
+        @Override
+        public Ast visitBinary(int node) {
+            return new Ast.Expression.Binary(flat.getOperator(node), expression(node, 0), expression(node, 1));
+        }
+
+        @Override
+        public Ast visitAccess(int node) {
+            return new Ast.Expression.Access(optional(node, 0), flat.getName(node));
+        }
+
+        @Override
+        public Ast visitCall(int node) {
+            return new Ast.Expression.Function(flat.getName(node), expressions(node));
+        }
+
+        @Override
+        public Ast visitList(int node) {
+            return new Ast.Expression.PlcList(expressions(node));
+        }
+
+        private Ast child(int node, int index) {
+            return flat.visit(this, flat.getChild(node, index));
+        }
+
+        private Ast.Expression expression(int node, int index) {
+            return (Ast.Expression) child(node, index);
+        }
+
+        private Optional<Ast.Expression> optional(int node, int index) {
+            return index < flat.getChildCount(node) ? Optional.of(expression(node, index)) : Optional.empty();
+        }
+
+        private List<Ast.Statement> statements(int node, int from, int to) {
+            List<Ast.Statement> statements = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                statements.add((Ast.Statement) child(node, i));
+            }
+            return statements;
+        }
+
+        private List<Ast.Expression> expressions(int node) {
+            List<Ast.Expression> expressions = new ArrayList<>();
+            for (int i = 0; i < flat.getChildCount(node); i++) {
+                expressions.add(expression(node, i));
+            }
+            return expressions;
+        }
+
+    }
+
+}
@@ -0,0 +1,268 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps a source analyzed across edits, re-checking only the declarations an
+ * edit can affect. While analyzing each global and function, the {@link
+ * Analyzer} records the variables and functions it looks up, which gives the
+ * dependents of each name:
+ *
+ * <ul>
+ *     <li>Replacing a function with the same signature re-checks its body
+ *     only. Other functions keep the same {@link Environment.Function}.</li>
+ *     <li>Replacing a function with a different signature also re-checks the
+ *     bodies that looked up its previous or new name and arity.</li>
+ *     <li>Replacing a global re-checks it, the later globals that looked up
+ *     its name, transitively, and the functions that looked up any of these
+ *     names.</li>
+ * </ul>
+ *
+ * The cost of an edit therefore depends on its dependents rather than on the
+ * size of the source. The results are the same as those of {@link
+ * Analyzer#visit(Ast.Source)} on the edited source. When an edit fails to
+ * check, the whole source is analyzed again so the error thrown is the one
+ * serial analysis reports first, and the next edit does the same until the
+ * source checks again.
+ */
+public final class IncrementalAnalyzer {
+
+    private final Scope parent;
+    private final List<Ast.Global> globals = new ArrayList<>();
+    private final List<Ast.Function> functions = new ArrayList<>();
+
+    private Scope scope;
+    private final Map<Environment.Variable, Integer> variables = new IdentityHashMap<>();
+    private final Map<Environment.Function, Integer> declarations = new IdentityHashMap<>();
+
+    /**
+     * The names each global and function looked up, and the indices of the
+     * globals and functions that looked up each name, with functions named
+     * by name/arity.
+     */
+    private final List<Set<String>> globalDependencies = new ArrayList<>();
+    private final List<Set<String>> functionDependencies = new ArrayList<>();
+    private final Map<String, Set<Integer>> globalDependents = new HashMap<>();
+    private final Map<String, Set<Integer>> functionDependents = new HashMap<>();
+
+    private boolean valid = false;
+    private int checked = 0;
+
+    public IncrementalAnalyzer(Scope parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Analyzes the whole source, replacing any previous one.
+     */
+    public void analyze(Ast.Source source) {
+        globals.clear();
+        globals.addAll(source.getGlobals());
+        functions.clear();
+        functions.addAll(source.getFunctions());
+        analyzeAll();
+    }
+
+    /**
+     * Replaces the global at the given index and re-checks its dependents.
+     */
+    public void replaceGlobal(int index, Ast.Global global) {
+        Ast.Global previous = globals.set(index, global);
+        if (!valid) {
+            analyzeAll();
+            return;
+        }
+        checked = 0;
+        try {
+            TreeSet<Integer> pendingGlobals = new TreeSet<>();
+            TreeSet<Integer> pendingFunctions = new TreeSet<>();
+            undefine(previous);
+            addDependents(previous.getName(), index, pendingGlobals, pendingFunctions);
+            pendingGlobals.add(index);
+            while (!pendingGlobals.isEmpty()) {
+                int i = pendingGlobals.pollFirst();
+                if (i != index) {
+                    undefine(globals.get(i));
+                }
+                checkGlobal(i);
+                addDependents(globals.get(i).getName(), i, pendingGlobals, pendingFunctions);
+            }
+            for (int i : pendingFunctions) {
+                checkFunction(i);
+            }
+        } catch (RuntimeException e) {
+            analyzeAll();
+        }
+    }
+
+    /**
+     * Replaces the function at the given index and re-checks its dependents.
+     */
+    public void replaceFunction(int index, Ast.Function function) {
+        Ast.Function previous = functions.set(index, function);
+        if (!valid) {
+            analyzeAll();
+            return;
+        }
+        checked = 0;
+        try {
+            Environment.Function declared = previous.getFunction();
+            Analyzer analyzer = analyzer(globals.size(), index);
+            if (analyzer.hasSignature(function, declared)) {
+                function.setFunction(declared);
+                checkFunction(index);
+            } else {
+                scope.undefineFunction(declared.getName(), declared.getParameterTypes().size());
+                declarations.remove(declared);
+                analyzer.declare(function);
+                declarations.put(function.getFunction(), index);
+                TreeSet<Integer> pending = new TreeSet<>();
+                pending.addAll(functionDependents.getOrDefault(key(declared.getName(), declared.getParameterTypes().size()), Collections.emptySet()));
+                pending.addAll(functionDependents.getOrDefault(key(function.getName(), function.getParameters().size()), Collections.emptySet()));
+                pending.add(index);
+                for (int i : pending) {
+                    checkFunction(i);
+                }
+            }
+            requireMain();
+        } catch (RuntimeException e) {
+            analyzeAll();
+        }
+    }
+
+    /**
+     * Returns the current source, which is analyzed if the last analysis or
+     * edit succeeded.
+     */
+    public Ast.Source getSource() {
+        return new Ast.Source(Collections.unmodifiableList(globals), Collections.unmodifiableList(functions));
+    }
+
+    /**
+     * Returns the top-level scope of the source.
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns the number of globals and functions checked by the last
+     * analysis or edit.
+     */
+    public int getChecked() {
+        return checked;
+    }
+
+    private void analyzeAll() {
+        valid = false;
+        checked = 0;
+        variables.clear();
+        declarations.clear();
+        globalDependencies.clear();
+        functionDependencies.clear();
+        globalDependents.clear();
+        functionDependents.clear();
+        Analyzer analyzer = new Analyzer(parent);
+        scope = analyzer.scope;
+        for (int i = 0; i < globals.size(); i++) {
+            globalDependencies.add(Collections.emptySet());
+            analyzer.dependencies = new HashSet<>();
+            analyzer.visit(globals.get(i));
+            variables.put(globals.get(i).getVariable(), i);
+            record(globalDependencies, globalDependents, i, analyzer.dependencies);
+            checked++;
+        }
+        for (int i = 0; i < functions.size(); i++) {
+            functionDependencies.add(Collections.emptySet());
+            analyzer.dependencies = new HashSet<>();
+            analyzer.visit(functions.get(i));
+            declarations.put(functions.get(i).getFunction(), i);
+            record(functionDependencies, functionDependents, i, analyzer.dependencies);
+            checked++;
+        }
+        requireMain();
+        valid = true;
+    }
+
+    /**
+     * Returns an analyzer for a single declaration, which sees the globals
+     * before {@code global} and the functions up to {@code declaration}.
+     */
+    private Analyzer analyzer(int global, int declaration) {
+        Analyzer analyzer = new Analyzer(scope, variables, global, declarations, declaration);
+        analyzer.dependencies = new HashSet<>();
+        return analyzer;
+    }
+
+    private void checkGlobal(int index) {
+        // Serial analysis defines all globals before any function.
+        Analyzer analyzer = analyzer(index, -1);
+        analyzer.visit(globals.get(index));
+        variables.put(globals.get(index).getVariable(), index);
+        record(globalDependencies, globalDependents, index, analyzer.dependencies);
+        checked++;
+    }
+
+    private void checkFunction(int index) {
+        Analyzer analyzer = analyzer(globals.size(), index);
+        analyzer.visitBody(functions.get(index));
+        record(functionDependencies, functionDependents, index, analyzer.dependencies);
+        checked++;
+    }
+
+    private void undefine(Ast.Global global) {
+        scope.undefineVariable(global.getName());
+        variables.remove(global.getVariable());
+    }
+
+    /**
+     * Adds the globals after the given index and the functions that looked
+     * up the given name. Earlier globals could not have seen it.
+     */
+    private void addDependents(String name, int index, Set<Integer> pendingGlobals, Set<Integer> pendingFunctions) {
+        for (int i : globalDependents.getOrDefault(name, Collections.emptySet())) {
+            if (i > index) {
+                pendingGlobals.add(i);
+            }
+        }
+        pendingFunctions.addAll(functionDependents.getOrDefault(name, Collections.emptySet()));
+    }
+
+    private static void record(List<Set<String>> dependencies, Map<String, Set<Integer>> dependents, int index, Set<String> names) {
+        for (String name : dependencies.get(index)) {
+            Set<Integer> indices = dependents.get(name);
+            indices.remove(index);
+            if (indices.isEmpty()) {
+                dependents.remove(name);
+            }
+        }
+        dependencies.set(index, names);
+        for (String name : names) {
+            dependents.computeIfAbsent(name, k -> new HashSet<>()).add(index);
+        }
+    }
+
+    private void requireMain() {
+        Environment.Function main = null;
+        try {
+            main = scope.lookupFunction("main", 0);
+        } catch (RuntimeException e) {
+            // Checked below, as Analyzer#visit(Source) does.
+        }
+        boolean exists = main != null && declarations.containsKey(main);
+        Analyzer.requireMain(exists, exists ? main.getReturnType() : null);
+    }
+
+    private static String key(String name, int arity) {
+        return name + "/" + arity;
+    }
+
+}
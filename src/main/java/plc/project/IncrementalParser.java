@@ -0,0 +1,156 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps the {@link Ast.Source} of an input up to date as the input is edited,
+ * reparsing only the globals and functions an edit touches.
+ *
+ * The parser records the range of the input each top-level declaration was
+ * parsed from. Declarations ending before the edit are kept as they are;
+ * parsing restarts at the first one whose lookahead reaches the edit and
+ * stops once a declaration starts after the edit where a previous one
+ * started. The remaining declarations are reused by reference with their
+ * ranges shifted, so the work grows with the edited declarations rather than
+ * the input. The result and any {@link ParseException} are those of parsing
+ * the edited input from scratch with {@link Parser#Parser(Lexer)}.
+ */
+public final class IncrementalParser {
+
+    private String input;
+    private Ast[] declarations = new Ast[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count = 0;
+    private Ast.Source source;
+
+    public IncrementalParser(String input) throws ParseException {
+        this.input = input;
+        parse(0, 0, 0);
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public Ast.Source getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the global or function whose range contains {@code index}, if
+     * any.
+     */
+    public Optional<Ast> getDeclaration(int index) {
+        int i = affected(index + 1);
+        return i < count && starts[i] <= index ? Optional.of(declarations[i]) : Optional.empty();
+    }
+
+    /**
+     * Replaces {@code removed} characters at {@code offset} with {@code
+     * inserted} and returns the source of the edited input. If the edited
+     * input fails to parse, the next edit parses it from scratch.
+     */
+    public Ast.Source edit(int offset, int removed, String inserted) throws ParseException {
+        Objects.checkFromIndexSize(offset, removed, input.length());
+        input = input.substring(0, offset) + inserted + input.substring(offset + removed);
+        if (source == null) {
+            count = 0;
+        }
+        // Lexing a token examines up to two characters past its end.
+        int first = affected(offset - 2);
+        parse(first, offset + inserted.length(), inserted.length() - removed);
+        return source;
+    }
+
+    /**
+     * Parses the input from the end of the declaration before {@code first},
+     * reusing the previous declarations from {@code first} on once one starts
+     * at or after {@code resume} with its index shifted by {@code delta}.
+     */
+    private void parse(int first, int resume, int delta) throws ParseException {
+        Ast[] previous = declarations;
+        int[] previousStarts = starts;
+        int[] previousEnds = ends;
+        int previousCount = count;
+        declarations = Arrays.copyOf(previous, previous.length);
+        starts = Arrays.copyOf(previousStarts, previousStarts.length);
+        ends = Arrays.copyOf(previousEnds, previousEnds.length);
+        count = first;
+        source = null;
+
+        Lexer lexer = new Lexer(input);
+        lexer.seek(first > 0 ? previousEnds[first - 1] : 0);
+        Parser parser = new Parser(lexer);
+        boolean globals = first == 0 || previous[first - 1] instanceof Ast.Global;
+        int next = first;
+        while (true) {
+            int index = parser.peekIndex();
+            if (index >= resume) {
+                while (next < previousCount && previousStarts[next] + delta < index) {
+                    next++;
+                }
+                // A global can only be reused while globals are still allowed.
+                if (next < previousCount && previousStarts[next] + delta == index
+                        && (globals || previous[next] instanceof Ast.Function)) {
+                    for (; next < previousCount; next++) {
+                        add(previous[next], previousStarts[next] + delta, previousEnds[next] + delta);
+                    }
+                    break;
+                }
+            }
+            Ast declaration = parser.parseDeclaration(globals);
+            if (declaration == null) {
+                break;
+            }
+            globals = declaration instanceof Ast.Global;
+            add(declaration, index, parser.previousEnd());
+        }
+
+        List<Ast.Global> parsedGlobals = new ArrayList<>();
+        List<Ast.Function> parsedFunctions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (declarations[i] instanceof Ast.Global) {
+                parsedGlobals.add((Ast.Global) declarations[i]);
+            } else {
+                parsedFunctions.add((Ast.Function) declarations[i]);
+            }
+        }
+        source = new Ast.Source(parsedGlobals, parsedFunctions);
+    }
+
+    private void add(Ast declaration, int start, int end) {
+        if (count == declarations.length) {
+            declarations = Arrays.copyOf(declarations, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        declarations[count] = declaration;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Returns the position of the first declaration ending at or after
+     * {@code index}.
+     */
+    private int affected(int index) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
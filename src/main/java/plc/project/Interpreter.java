@@ -4,15 +4,27 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     private Scope scope = new Scope(null);
 
+    /**
+     * The variables of the current call of a function resolved by the
+     * {@link Resolver}, or null outside of one, and the globals by slot.
+     * Resolved variables are read and written here instead of in scopes, and
+     * blocks then do not create scopes.
+     */
+    private Environment.PlcObject[] frame = null;
+    private Environment.Variable[] globals = new Environment.Variable[0];
+
     public Interpreter(Scope parent) {
         scope = new Scope(parent);  // define new scope
         scope.defineFunction("print", 1, args -> {
@@ -30,8 +42,14 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     // VAR x = 1; VAR y = 10; FUN main() DO x+y; END => NIL
     // ^^The statement x+y is evaluated, but not returned
     // If a function does not exist within source, the evaluation fails
+    // An unresolved source is resolved first, which fails with an
+    // IllegalStateException if it was interned by an ExpressionFactory
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
+        if (!isResolved(ast)) {
+            new Resolver().visit(ast);
+        }
+        globals = new Environment.Variable[ast.getGlobals().size()];
         ast.getGlobals().forEach(this::visit);
         ast.getFunctions().forEach(this::visit);
 
@@ -52,8 +70,14 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     // LIST list = [1, 5, 10];, scope = {} => NIL, scope = {list = [1, 5, 10]}
     @Override
     public Environment.PlcObject visit(Ast.Global ast) {
-        if(ast.getValue().isEmpty()) scope.defineVariable(ast.getName(), ast.getMutable(), Environment.NIL);
-        else scope.defineVariable(ast.getName(), ast.getMutable(), visit(ast.getValue().get()));
+        Environment.PlcObject value = ast.getValue().isEmpty() ? Environment.NIL : visit(ast.getValue().get());
+        Environment.Variable variable = scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, ast.getMutable(), value);
+        if (ast.getSlot() >= 0) {
+            if (ast.getSlot() >= globals.length) {
+                globals = Arrays.copyOf(globals, ast.getSlot() + 1);
+            }
+            globals[ast.getSlot()] = variable;
+        }
         return Environment.NIL;
     }
 
@@ -68,7 +92,9 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     // ^^evaluating square(10) returns 100
     @Override
     public Environment.PlcObject visit(Ast.Function ast) {
-
+        if (ast.getFrameSize() >= 0) {
+            return defineResolved(ast);
+        }
 
             Scope definingScope = this.scope; // Capture the current scope as the defining scope of the function.
 
@@ -95,6 +121,47 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             return Environment.NIL; // Function definition does not produce a runtime value.
     }
 
+    /**
+     * Defines a function resolved by the {@link Resolver}, which calls it in
+     * a new frame. Its variables are all in the frame or found by name from
+     * the defining scope, so a call does not create a scope.
+     */
+    private Environment.PlcObject defineResolved(Ast.Function ast) {
+        Scope definingScope = this.scope;
+        List<String> parameters = ast.getParameters();
+        // Defining a repeated parameter fails on every call.
+        Set<String> names = new HashSet<>();
+        int repeated = 0;
+        while (repeated < parameters.size() && names.add(parameters.get(repeated))) {
+            repeated++;
+        }
+        int bound = repeated;
+        scope.defineFunction(ast.getName(), parameters.size(), args -> {
+            Scope previousScope = this.scope;
+            Environment.PlcObject[] previousFrame = this.frame;
+            this.scope = definingScope;
+            this.frame = new Environment.PlcObject[ast.getFrameSize()];
+            try {
+                for (int i = 0; i < bound; i++) {
+                    frame[i] = args.get(i);
+                }
+                if (bound < parameters.size()) {
+                    throw alreadyDefined(parameters.get(bound));
+                }
+                for (Ast.Statement statement : ast.getStatements()) {
+                    visit(statement);
+                }
+            } catch (Return e) {
+                return e.value;
+            } finally {
+                this.scope = previousScope;
+                this.frame = previousFrame;
+            }
+            return Environment.NIL;
+        });
+        return Environment.NIL;
+    }
+
     // Evaluates the expression => Returns NIL
     // print ("Hello, World!"); => NIL, prints Hello, World!
     @Override
@@ -109,6 +176,14 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     // LET name = 1;, scope={} => NIL, scope={name=1}
     @Override
     public Environment.PlcObject visit(Ast.Statement.Declaration ast) {
+        if (frame != null) {
+            Environment.PlcObject value = ast.getValue().isPresent() ? visit(ast.getValue().get()) : Environment.NIL;
+            if (ast.getSlot() < 0) {
+                throw alreadyDefined(ast.getName());
+            }
+            frame[ast.getSlot()] = value;
+            return Environment.NIL;
+        }
         Optional optional=ast.getValue();
         Boolean present=optional.isPresent();
         if(present){
@@ -134,7 +209,23 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         }
 
         Ast.Expression.Access access = (Ast.Expression.Access) ast.getReceiver();
-        Environment.Variable variable = scope.lookupVariable(access.getName());
+        if (frame != null && access.getSlot() >= 0 && !access.isGlobal()) {
+            // Local variables are always mutable.
+            Environment.PlcObject value = visit(ast.getValue());
+            if (access.getOffset().isPresent()) {
+                @SuppressWarnings("unchecked")
+                List<Object> list = requireType(List.class, frame[access.getSlot()]);
+                int index = requireType(BigInteger.class, visit(access.getOffset().get())).intValue();
+                if (index < 0 || index >= list.size()) {
+                    throw new RuntimeException("List index out of bounds: " + index);
+                }
+                list.set(index, value.getValue());
+            } else {
+                frame[access.getSlot()] = value;
+            }
+            return Environment.NIL;
+        }
+        Environment.Variable variable = lookupVariable(access);
 
         // Directly evaluate the right-hand side (value) of the assignment.
         Environment.PlcObject value = visit(ast.getValue());
@@ -174,6 +265,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         Environment.PlcObject condition = visit(ast.getCondition());
         Boolean conditionValue = requireType(Boolean.class, condition);
+        if (frame != null) {
+            (conditionValue ? ast.getThenStatements() : ast.getElseStatements()).forEach(this::visit);
+            return Environment.NIL;
+        }
         try {
             scope = new Scope(scope);   // Defining new scope for function
             if (conditionValue) {
@@ -199,9 +294,12 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         Environment.PlcObject conditionValue = visit(ast.getCondition());
         boolean matched = false;
+        Scope switchScope = scope;
 
         try {
-            scope = new Scope(scope);   // Defining new scope for function
+            if (frame == null) {
+                scope = new Scope(scope);   // Defining new scope for function
+            }
             for (Ast.Statement.Case caseStmt : ast.getCases()) {
                 // If we've already matched, break out of the loop to prevent executing more than one case
                 if (matched) {
@@ -231,7 +329,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         }
         finally {
-            scope = scope.getParent();  // Update Scope before Exiting
+            scope = switchScope;  // Update Scope before Exiting
         }
         return Environment.NIL;
     }
@@ -255,6 +353,14 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     // Returns NIL
     @Override
     public Environment.PlcObject visit(Ast.Statement.While ast) {
+        if (frame != null) {
+            while (requireType(Boolean.class, visit(ast.getCondition()))) {
+                for (Ast.Statement statement : ast.getStatements()) {
+                    visit(statement);
+                }
+            }
+            return Environment.NIL;
+        }
         while(requireType(Boolean.class,visit(ast.getCondition()))) {
             try {
                 scope = new Scope(scope);
@@ -406,15 +512,16 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     // ^^Any access outside of length-1 will FAIL
     @Override
     public Environment.PlcObject visit(Ast.Expression.Access ast) {
-        Environment.Variable variable = scope.lookupVariable(ast.getName());
+        Environment.PlcObject value = frame != null && ast.getSlot() >= 0 && !ast.isGlobal()
+                ? frame[ast.getSlot()] : lookupVariable(ast).getValue();
 
         // If there's no offset, simply return the variable's value
         if (!ast.getOffset().isPresent()) {
            // System.out.println(variable.getValue());;
-            return variable.getValue();
+            return value;
         } else {
             // If there's an offset, it's a list access. First, ensure the variable's value is a List
-            List<Environment.PlcObject> list = requireType(List.class, variable.getValue());
+            List<Environment.PlcObject> list = requireType(List.class, value);
 
             // Evaluate the offset expression to get the index
             int index = requireType(BigInteger.class, visit(ast.getOffset().get())).intValueExact();
@@ -462,6 +569,40 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
 
 
+    /**
+     * Returns the variable of an access that is not in the current frame,
+     * by its global slot if resolved to one that has been defined.
+     */
+    private Environment.Variable lookupVariable(Ast.Expression.Access ast) {
+        int slot = ast.getSlot();
+        if (ast.isGlobal() && slot < globals.length && globals[slot] != null) {
+            return globals[slot];
+        }
+        return scope.lookupVariable(ast.getName());
+    }
+
+    private static RuntimeException alreadyDefined(String name) {
+        return new RuntimeException("The variable " + name + " is already defined in this scope.");
+    }
+
+    /**
+     * Returns whether the {@link Resolver} has assigned the slots of the
+     * source, which it does for every global and function.
+     */
+    private static boolean isResolved(Ast.Source ast) {
+        for (Ast.Global global : ast.getGlobals()) {
+            if (global.getSlot() < 0) {
+                return false;
+            }
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            if (function.getFrameSize() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
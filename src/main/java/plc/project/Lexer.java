@@ -1,7 +1,31 @@
 package plc.project;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+
 /**
  * The lexer works through three main functions:
  *
@@ -11,30 +35,496 @@ import java.util.ArrayList;
  *
  * If the lexer fails to parse something (such as an unterminated string) you
  * should throw a {@link ParseException} with an index at the character which is
- * invalid.
+ * invalid. To report every error in one pass instead, {@link
+ * #lex(Diagnostics)} records them and skips past each invalid token.
+ *
+ * Characters are classified through the precomputed {@link #CLASSES} table
+ * instead of regular expressions, so examining a character is a single array
+ * lookup. The regex based {@link #peek(String...)} and {@link
+ * #match(String...)} helpers are kept for callers that still use them.
+ *
+ * Besides a {@link String}, the lexer can read from a {@link Reader} or {@link
+ * ReadableByteChannel}. In that case the {@link CharStream} only buffers a
+ * sliding window around the current token, and {@link #iterator()} yields the
+ * tokens one at a time so neither the source nor the token list has to be held
+ * in memory.
  *
- * The {@link #peek(String...)} and {@link #match(String...)} functions are * helpers you need to use, they will make the implementation a lot easier. */
+ * Files can also be lexed in place with {@link #map(Path)}, which memory maps
+ * the file and defers decoding token literals until they are requested.
+ * Large in-memory sources can be lexed on several threads with {@link
+ * #lexParallel(ForkJoinPool)}.
+ *
+ * For many small inputs, a lexer can be {@link #reset(CharSequence)} and
+ * reused, writing into a reused {@link TokenBuffer} through {@link
+ * #lexBuffer(TokenBuffer)}; {@link #local(CharSequence)} keeps one such
+ * lexer per thread.
+ */
 public final class Lexer {
 
+    private static final int WHITESPACE = 1;
+    private static final int IDENTIFIER_START = 2;
+    private static final int IDENTIFIER_PART = 4;
+    private static final int DIGIT = 8;
+    private static final int NONZERO_DIGIT = 16;
+    private static final int ESCAPE = 32;
+
+    /**
+     * Character class bits for the ASCII range, indexed by character. Anything
+     * outside of ASCII has no class and is lexed as an operator.
+     */
+    private static final byte[] CLASSES = new byte[128];
+
+    /**
+     * The smallest chunk {@link #lexParallel(ForkJoinPool)} splits the input
+     * into, below which the overhead of a task outweighs lexing the chunk.
+     */
+    private static final int MINIMUM_CHUNK = 1 << 16;
+
+    /**
+     * The number of symbols a {@link #local(CharSequence)} lexer keeps
+     * interned before starting a new table, so a thread that sees many
+     * distinct identifiers does not hold onto all of them.
+     */
+    private static final int LOCAL_SYMBOLS = 1 << 12;
+
+    private static final ThreadLocal<Lexer> LOCAL = ThreadLocal.withInitial(() -> new Lexer(""));
+
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    static {
+        for (char c : " \n\r\t".toCharArray()) {
+            CLASSES[c] |= WHITESPACE;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] |= IDENTIFIER_START | IDENTIFIER_PART;
+            CLASSES[Character.toUpperCase(c)] |= IDENTIFIER_START | IDENTIFIER_PART;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= DIGIT | IDENTIFIER_PART;
+            if (c != '0') CLASSES[c] |= NONZERO_DIGIT;
+        }
+        CLASSES['_'] |= IDENTIFIER_PART;
+        CLASSES['-'] |= IDENTIFIER_PART;
+        for (char c : "bnrt'\"\\".toCharArray()) {
+            CLASSES[c] |= ESCAPE;
+        }
+    }
+
     private final CharStream chars;
+    private Diagnostics diagnostics;
 
     public Lexer(String input) {
         chars = new CharStream(input);
     }
 
+    private Lexer(CharStream chars) {
+        this.chars = chars;
+    }
+
+    /**
+     * Creates a lexer over the memory mapped contents of the given file. ASCII
+     * files are lexed directly out of the mapping and token literals are only
+     * decoded when {@link Token#getLiteral()} is called; any other file is
+     * decoded as UTF-8 up front so that token indices remain char offsets.
+     */
+    public static Lexer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (AsciiSequence.isAscii(buffer)) {
+                return new Lexer(new CharStream(new AsciiSequence(buffer)));
+            }
+            return new Lexer(StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+    }
+
+    /**
+     * Creates a lexer reading from the given reader through a bounded window.
+     * The reader is not closed by the lexer.
+     */
+    public Lexer(Reader reader) {
+        this(reader, CharStream.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a lexer reading from the given reader through a window with the
+     * given initial capacity.
+     */
+    public Lexer(Reader reader, int capacity) {
+        chars = new CharStream(reader, capacity);
+    }
+
+    /**
+     * Creates a lexer reading UTF-8 encoded input from the given channel. The
+     * channel is not closed by the lexer.
+     */
+    public Lexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns this thread's shared lexer, reset to lex {@code input}. The
+     * lexer is only valid until the next call to this method on the same
+     * thread. Together with {@link #lexBuffer(TokenBuffer)} and a reused
+     * buffer, lexing many small inputs does not allocate once the buffer and
+     * symbol table have grown.
+     */
+    public static Lexer local(CharSequence input) {
+        Lexer lexer = LOCAL.get();
+        if (lexer.chars.symbols.size() > LOCAL_SYMBOLS) {
+            lexer.chars.symbols = new SymbolTable();
+        }
+        lexer.reset(input);
+        return lexer;
+    }
+
+    /**
+     * Resets the lexer to lex {@code input} from the start, keeping its
+     * symbol table so identifiers seen before are not allocated again.
+     */
+    public void reset(CharSequence input) {
+        chars.reset(input);
+    }
+
+    /**
+     * Returns the table identifier literals are interned into. Each lexer
+     * starts with its own table.
+     */
+    public SymbolTable getSymbols() {
+        return chars.symbols;
+    }
+
+    /**
+     * Sets the table identifier literals are interned into, allowing several
+     * sources of one compilation to share symbols.
+     */
+    public void setSymbols(SymbolTable symbols) {
+        chars.symbols = symbols;
+    }
+
     /**
      * Repeatedly lexes the input using {@link #lexToken()}, also skipping over
      * whitespace where appropriate.
      */
     public List<Token> lex() {
         List<Token> tokens = new ArrayList<>();
-        while (chars.has( 0)) {
-            if (match( "[ \\n\\r\\t]")) chars.skip();
-            else tokens.add(lexToken());
+        while (skipWhitespace()) {
+            tokens.add(lexToken());
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes the input like {@link #lex()}, but records errors in {@code
+     * diagnostics} instead of throwing a {@link ParseException}, so a single
+     * pass reports every invalid token. Recording an error does not allocate
+     * once the buffer has grown, which keeps rejecting invalid input cheap.
+     *
+     * Invalid tokens are left out of the result. An invalid escape does not
+     * end its literal, so lexing resumes after the closing quote; any other
+     * error skips ahead to the next whitespace.
+     */
+    public List<Token> lex(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        try {
+            List<Token> tokens = new ArrayList<>();
+            while (skipWhitespace()) {
+                Token.Type type = scanToken();
+                if (type != null) {
+                    tokens.add(chars.emit(type));
+                } else {
+                    chars.skip();
+                }
+            }
+            return tokens;
+        } finally {
+            this.diagnostics = null;
+        }
+    }
+
+    /**
+     * Lexes the remaining input into a {@link TokenBuffer}, which stores token
+     * positions over the source instead of one {@link Token} per token. The
+     * lexer must be over an in-memory or memory mapped source, and throws an
+     * {@link IllegalStateException} if it reads from a reader or channel.
+     */
+    public TokenBuffer lexBuffer() {
+        TokenBuffer tokens = chars.buffer();
+        while (skipWhitespace()) {
+            chars.emit(scanToken(), tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes the remaining input into {@code tokens}, replacing its contents,
+     * so the same buffer can be reused for every input. Like {@link
+     * #lexBuffer()}, this throws an {@link IllegalStateException} unless the
+     * lexer is over an in-memory or memory mapped source.
+     */
+    public TokenBuffer lexBuffer(TokenBuffer tokens) {
+        chars.buffer(tokens);
+        while (skipWhitespace()) {
+            chars.emit(scanToken(), tokens);
         }
         return tokens;
     }
 
+    /**
+     * Lexes the remaining input like {@link #lex()}, but splits it into chunks
+     * lexed concurrently on the common {@link ForkJoinPool}. The lexer must be
+     * over an in-memory or memory mapped source, as for {@link
+     * #lexParallel(ForkJoinPool)}.
+     */
+    public List<Token> lexParallel() {
+        return lexParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Lexes the remaining input like {@link #lex()}, but splits it into chunks
+     * lexed concurrently on the given pool. The lexer must be over an
+     * in-memory or memory mapped source, and throws an {@link
+     * IllegalStateException} if it reads from a reader or channel.
+     *
+     * Chunks are split at whitespace outside of string and character literals,
+     * found by a pre-scan tracking quote state, so every chunk starts at a
+     * token boundary. The pre-scan agrees with the lexer up to the first
+     * invalid token, so the tokens, identifier ids and any {@link
+     * ParseException} are identical to those of {@link #lex()}.
+     */
+    public List<Token> lexParallel(ForkJoinPool pool) {
+        if (chars.input == null) {
+            throw new IllegalStateException("Parallel lexing requires an in-memory source.");
+        }
+        CharSequence input = chars.input;
+        int chunk = Math.max(MINIMUM_CHUNK, (input.length() - chars.index) / (pool.getParallelism() * 4));
+        int[] bounds = split(input, chars.index, chunk);
+        if (bounds.length <= 2) {
+            return lex();
+        }
+        List<Lexer> lexers = new ArrayList<>();
+        List<List<Token>> chunks = new ArrayList<>();
+        ParseException[] exceptions = new ParseException[bounds.length - 1];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            Lexer lexer = new Lexer(new CharStream(input));
+            lexer.chars.index = bounds[i];
+            if (i == 0) {
+                lexer.chars.symbols = chars.symbols;
+            }
+            List<Token> tokens = new ArrayList<>();
+            int n = i, end = bounds[i + 1];
+            lexers.add(lexer);
+            chunks.add(tokens);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    while (lexer.skipWhitespace() && lexer.chars.index < end) {
+                        tokens.add(lexer.lexToken());
+                    }
+                } catch (ParseException e) {
+                    exceptions[n] = e;
+                }
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        for (ParseException exception : exceptions) {
+            if (exception != null) {
+                throw exception;
+            }
+        }
+        // Merge each chunk's symbols in order, which assigns the same ids as
+        // lexing serially, then swap in the canonical literals concurrently.
+        Token[] result = new Token[chunks.stream().mapToInt(List::size).sum()];
+        tasks.clear();
+        for (int i = 0, offset = 0; i < chunks.size(); offset += chunks.get(i).size(), i++) {
+            SymbolTable symbols = lexers.get(i).chars.symbols;
+            String[] canonical = new String[symbols.size()];
+            for (int id = 0; id < canonical.length; id++) {
+                canonical[id] = chars.symbols.intern(symbols.getSymbol(id));
+            }
+            List<Token> tokens = chunks.get(i);
+            int start = offset;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                for (int j = 0; j < tokens.size(); j++) {
+                    Token token = tokens.get(j);
+                    if (token.getType() == Token.Type.IDENTIFIER) {
+                        String literal = canonical[symbols.lookup(token.getLiteral())];
+                        if (literal != token.getLiteral()) {
+                            token = new Token(Token.Type.IDENTIFIER, literal, token.getIndex());
+                        }
+                    }
+                    result[start + j] = token;
+                }
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        chars.index = input.length();
+        chars.skip();
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    /**
+     * Re-lexes the input after an edit, given the tokens of the input before
+     * it. The edit replaced {@code removed} characters at {@code offset} with
+     * {@code inserted} characters, and the lexer is over the edited input.
+     * The result equals lexing the edited input from scratch. The lexer must
+     * be over an in-memory or memory mapped source, and throws an {@link
+     * IllegalStateException} if it reads from a reader or channel.
+     *
+     * Since a token only depends on the characters from its start, lexing
+     * restarts at the first token whose lookahead reaches the edit and stops
+     * once a token starts after the edit where a previous token started.
+     *
+     * The result is a read-only view sharing the previous tokens before and
+     * after the relexed ones, which are shifted by the edit the first time
+     * they are read, so the work grows with the edit rather than the input. The
+     * previous tokens must therefore not be modified afterwards. The result
+     * can itself be relexed after the next edit.
+     */
+    public List<Token> relex(List<Token> previous, int offset, int removed, int inserted) {
+        if (chars.input == null) {
+            throw new IllegalStateException("Incremental lexing requires an in-memory source.");
+        }
+        int delta = inserted - removed;
+        int first = affected(previous, offset);
+        List<Token> lexed = new ArrayList<>();
+        chars.index = first < previous.size() ? Math.min(previous.get(first).getIndex(), offset) : offset;
+        chars.skip();
+        int next = first;
+        while (skipWhitespace()) {
+            if (chars.index >= offset + inserted) {
+                int index = chars.index - delta;
+                while (next < previous.size() && previous.get(next).getIndex() < index) {
+                    next++;
+                }
+                if (next < previous.size() && previous.get(next).getIndex() == index) {
+                    chars.index = chars.input.length();
+                    return EditedTokens.of(chars.input, previous, first, lexed, next, delta);
+                }
+            }
+            lexed.add(lexToken());
+        }
+        return EditedTokens.of(chars.input, previous, first, lexed, previous.size(), delta);
+    }
+
+    /**
+     * Moves the lexer to {@code index} of an in-memory source, which must be
+     * the start of a token or whitespace.
+     */
+    void seek(int index) {
+        chars.index = index;
+        chars.skip();
+    }
+
+    /**
+     * Returns the position of the first token in {@code tokens} whose
+     * lookahead reaches {@code offset}. The lexer examines at most two
+     * characters past the end of a token, such as the {@code ".5"} that turns
+     * {@code "-0"} into a decimal.
+     */
+    private static int affected(List<Token> tokens, int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Token token = tokens.get(middle);
+            if (token.getIndex() + token.getLength() + 2 < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the offsets splitting {@code input} from {@code start} into
+     * chunks of roughly {@code size} characters, including {@code start} and
+     * the end of the input. Each inner offset is whitespace outside of a
+     * string or character literal.
+     */
+    private static int[] split(CharSequence input, int start, int size) {
+        int[] bounds = new int[] {start, 0};
+        int count = 1;
+        int target = start + size;
+        int i = start;
+        while (i < input.length()) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                // Skip the string, including escaped quotes.
+                for (i++; i < input.length() && input.charAt(i) != '"'; i++) {
+                    if (input.charAt(i) == '\\') {
+                        i++;
+                    }
+                }
+                i++;
+            } else if (c == '\'') {
+                // Skip the character and closing quote, if present.
+                i += i + 1 < input.length() && input.charAt(i + 1) == '\\' ? 3 : 2;
+                if (i < input.length() && input.charAt(i) == '\'') {
+                    i++;
+                }
+            } else {
+                if (i >= target && c < CLASSES.length && (CLASSES[c] & WHITESPACE) != 0) {
+                    if (count + 1 == bounds.length) {
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[count++] = i;
+                    target = i + size;
+                }
+                i++;
+            }
+        }
+        bounds[count++] = Math.max(start, input.length());
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Returns an iterator lexing one token per call to {@link Iterator#next()}.
+     * Any {@link ParseException} is thrown from {@code hasNext}/{@code next}
+     * when the invalid token is reached.
+     */
+    public Iterator<Token> iterator() {
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return skipWhitespace();
+            }
+
+            @Override
+            public Token next() {
+                if (!skipWhitespace()) {
+                    throw new NoSuchElementException();
+                }
+                return lexToken();
+            }
+
+        };
+    }
+
+    /**
+     * Returns an ordered spliterator over the remaining tokens, see {@link
+     * #iterator()}.
+     */
+    public Spliterator<Token> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Skips whitespace, returning true if there is another token to lex.
+     */
+    private boolean skipWhitespace() {
+        while (is(0, WHITESPACE)) {
+            chars.advance();
+            chars.skip();
+        }
+        return chars.has(0);
+    }
+
     /**
      * This method determines the type of the next token, delegating to the
      * appropriate lex method. As such, it is best for this method to not change
@@ -44,127 +534,242 @@ public final class Lexer {
      * by {@link #lex()}
      */
     public Token lexToken() {
-        if (peek("[a-zA-Z@]")) {
-            return lexIdentifier();
-        } else if (peek("[-0-9]")) {
-            return lexNumber();
-        } else if (peek("'")) {
-            return lexCharacter();
-        } else if (peek("\"")) {
-            return lexString();
+        return chars.emit(scanToken());
+    }
+
+    public Token lexIdentifier() {
+        return chars.emit(scanIdentifier());
+    }
+
+    public Token lexNumber() {
+        return chars.emit(scanNumber());
+    }
+
+    public Token lexCharacter() {
+        return chars.emit(scanCharacter());
+    }
+
+    public Token lexString() {
+        return chars.emit(scanString());
+    }
+
+    public void lexEscape() {
+        scanEscape();
+    }
+
+    public Token lexOperator() {
+        return chars.emit(scanOperator());
+    }
+
+    /*
+     * The scan methods advance the char stream past the next token and return
+     * its type without creating a Token, leaving that to the caller.
+     */
+
+    private Token.Type scanToken() {
+        if (is(0, IDENTIFIER_START) || is(0, '@')) {
+            return scanIdentifier();
+        } else if (is(0, DIGIT) || is(0, '-')) {
+            return scanNumber();
+        } else if (is(0, '\'')) {
+            return scanCharacter();
+        } else if (is(0, '"')) {
+            return scanString();
         } else {
-            return lexOperator();
+            return scanOperator();
         }
     }
 
-    public Token lexIdentifier() {
-        if (peek("@")) match("@");
-        if (peek("[a-zA-Z]")) {
-            while (match("[a-zA-Z0-9_-]"));
-            return chars.emit(Token.Type.IDENTIFIER);
+    private Token.Type scanIdentifier() {
+        accept('@');
+        if (is(0, IDENTIFIER_START)) {
+            while (accept(IDENTIFIER_PART));
+            return Token.Type.IDENTIFIER;
         }
-        throw new ParseException("Expected identifier", chars.index);
+        return fail("Expected identifier", chars.index);
     }
 
-    public Token lexNumber() {
+    private Token.Type scanNumber() {
         boolean isDecimal = false;
         // Negatives
-        if (match("-")) {
+        if (accept('-')) {
             // Check if Negative Decimal or Non-zero
-            // JAVA IS SHORT CIRCUITING MEANING THE REMAINING STATEMENTS WON'T EVALUATE IF THE PRECEDING IS/ARE TRUE
-            if (peek("[1-9]")) {
+            if (is(0, NONZERO_DIGIT)) {
                 // all good!
             }
-            else if (peek("0", "\\.", "[0-9]")) {
-                match("0", "\\.");
+            else if (is(0, '0') && is(1, '.') && is(2, DIGIT)) {
+                chars.advance();
+                chars.advance();
                 isDecimal = true;
             }
             // Just a Hyphen!
             else {
-                return chars.emit(Token.Type.OPERATOR);
+                return Token.Type.OPERATOR;
             }
         }
         // Leading Zeros
-        else if (match("0")) {
+        else if (accept('0')) {
             // Only char that can follow a 0 is a decimal
-            if (peek("\\.", "[0-9]")) {
-                match("\\.");
+            if (is(0, '.') && is(1, DIGIT)) {
+                chars.advance();
                 isDecimal = true;
             }
             // Either leading zero or just zero, so emit
             else {
-                return chars.emit(Token.Type.INTEGER);
+                return Token.Type.INTEGER;
             }
         }
         // All Other Cases
-        if (match("[1-9]") || isDecimal) {
-            while (match("[0-9]"));
-            if (peek("\\.", "[0-9]")) {
+        if (accept(NONZERO_DIGIT) || isDecimal) {
+            while (accept(DIGIT));
+            if (is(0, '.') && is(1, DIGIT)) {
                 if (isDecimal) {
-                    return chars.emit(Token.Type.DECIMAL);
+                    return Token.Type.DECIMAL;
                 }
-                match("\\.");
+                chars.advance();
                 isDecimal = true;
-                while(match("[0-9]"));
+                while (accept(DIGIT));
             }
         }
         else {
-            throw new ParseException("Expected Digit(s)", chars.index);
+            return fail("Expected Digit(s)", chars.index);
         }
         // Emit the appropriate token type based on whether a decimal point was part of the number
         if (isDecimal) {
-            return chars.emit(Token.Type.DECIMAL);
+            return Token.Type.DECIMAL;
         } else {
-            return chars.emit(Token.Type.INTEGER);
+            return Token.Type.INTEGER;
         }
     }
 
-    public Token lexCharacter() {
-        match("'");
-        if (peek("\\\\")) { // Start of an escape sequence
-            lexEscape(); // Handle the escape sequence
-        } else if (!match("[^']")) { // Match any character except a single quote
-            throw new ParseException("Invalid character literal", chars.index);
+    private Token.Type scanCharacter() {
+        boolean valid = true;
+        accept('\'');
+        if (is(0, '\\')) { // Start of an escape sequence
+            valid = scanEscape(); // Handle the escape sequence
+            if (!valid && chars.has(0) && !is(0, '\'')) {
+                chars.advance(); // Skip the invalid escape character
+            }
+        } else if (!chars.has(0) || is(0, '\'')) { // Any character except a single quote
+            return fail("Invalid character literal", chars.index);
+        } else {
+            chars.advance();
         }
-        if (!match("'")) { // Ensure the character literal is properly closed
-            throw new ParseException("Unterminated character literal", chars.index);
+        if (!accept('\'')) { // Ensure the character literal is properly closed
+            return fail("Unterminated character literal", chars.index);
         }
-        return chars.emit(Token.Type.CHARACTER);
+        return valid ? Token.Type.CHARACTER : null;
     }
 
-    public Token lexString() {
-        match("\"");
-        while (!peek("\"")) { // Process until the closing double quote
-            if (peek("\\\\")) { // Start of an escape sequence
-                lexEscape(); // Handle the escape sequence
-            } else if (!match("[^\"\\\\]")) { // Match any character except double quote or backslash
-                throw new ParseException("Invalid string literal", chars.index);
+    private Token.Type scanString() {
+        boolean valid = true;
+        accept('"');
+        while (!is(0, '"')) { // Process until the closing double quote
+            if (is(0, '\\')) { // Start of an escape sequence
+                valid &= scanEscape(); // Handle the escape sequence
+            } else if (!chars.has(0)) { // Any character except double quote or backslash
+                return fail("Invalid string literal", chars.index);
+            } else {
+                chars.advance();
             }
             if (!chars.has(0)) { // Check if end of input is reached without closing quote
-                throw new ParseException("Unterminated string literal", chars.index);
+                return fail("Unterminated string literal", chars.index);
             }
         }
-        match("\""); // Consume the closing double quote
-        return chars.emit(Token.Type.STRING);
+        accept('"'); // Consume the closing double quote
+        return valid ? Token.Type.STRING : null;
     }
 
-    public void lexEscape() {
-        match("\\\\"); // Match the leading backslash of the escape sequence.
-        if (!match("[bnrt'\"\\\\]")) { // Match valid escape characters.
-            throw new ParseException("Invalid escape sequence", chars.index);
+    private Token.Type scanOperator() {
+        // Compound operators; && and || are still lexed one character at a time
+        if (accept('!') || accept('=')) {
+            accept('=');
+        } else if (chars.has(0) && !is(0, '\n') && !is(0, '\r')) {
+            // Any Character (excluding whitespace)
+            chars.advance();
         }
+        return Token.Type.OPERATOR;
     }
 
-    public Token lexOperator() {
-        // First, handle compound operators to ensure they are matched correctly
-        if(match("!") || match("=")) {
-            match("=");
-        } else if (match("&&") || match("||")) {
-        } else {
-            // Any Character (excluding whitespace)
-            match(".");
+    /**
+     * Scans an escape sequence, returning false if it is invalid. The invalid
+     * character is left for the caller so that a string can continue past it
+     * when collecting diagnostics.
+     */
+    private boolean scanEscape() {
+        accept('\\'); // Match the leading backslash of the escape sequence.
+        if (!accept(ESCAPE)) { // Match valid escape characters.
+            report("Invalid escape sequence", chars.index);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reports an error in the current token. Outside of {@link
+     * #lex(Diagnostics)} this throws a {@link ParseException}; otherwise the
+     * error is recorded and lexing continues.
+     */
+    private void report(String message, int index) {
+        if (diagnostics == null) {
+            throw new ParseException(message, index);
+        }
+        diagnostics.add(message, index);
+    }
+
+    /**
+     * Reports an error the current token cannot continue past, skipping the
+     * rest of it up to the next whitespace when collecting diagnostics.
+     * Returns null as the type of the invalid token.
+     */
+    private Token.Type fail(String message, int index) {
+        report(message, index);
+        while (chars.has(0) && !is(0, WHITESPACE)) {
+            chars.advance();
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the character at the given offset has any of the class
+     * bits in {@code mask}.
+     */
+    private boolean is(int offset, int mask) {
+        if (!chars.has(offset)) {
+            return false;
+        }
+        char c = chars.get(offset);
+        return c < CLASSES.length && (CLASSES[c] & mask) != 0;
+    }
+
+    /**
+     * Returns true if the character at the given offset is {@code c}.
+     */
+    private boolean is(int offset, char c) {
+        return chars.has(offset) && chars.get(offset) == c;
+    }
+
+    /**
+     * Advances past the next character if it has any of the class bits in
+     * {@code mask}.
+     */
+    private boolean accept(int mask) {
+        boolean is = is(0, mask);
+        if (is) {
+            chars.advance();
+        }
+        return is;
+    }
+
+    /**
+     * Advances past the next character if it is {@code c}.
+     */
+    private boolean accept(char c) {
+        boolean is = is(0, c);
+        if (is) {
+            chars.advance();
         }
-        return chars.emit(Token.Type.OPERATOR);
+        return is;
     }
 
     /**
@@ -174,7 +779,7 @@ public final class Lexer {
      */
     public boolean peek(String... patterns) {
         for(int i=0; i<patterns.length; i++){
-            if (!chars.has(i) || !String.valueOf(chars.get(i)).matches(patterns[i])){
+            if (!chars.has(i) || !PATTERNS.computeIfAbsent(patterns[i], Pattern::compile).matcher(String.valueOf(chars.get(i))).matches()){
                 return false;
             }
         }
@@ -203,24 +808,68 @@ public final class Lexer {
      * You should rely on peek/match for state management in nearly all cases.
      * The only field you need to access is {@link #index} for any {@link
      * ParseException} which is thrown.
+     *
+     * When created from a {@link Reader}, only a window of the input is kept,
+     * starting at the current token. The window is refilled on demand and only
+     * grows if a single token is longer than it. Indices are always absolute.
+     *
+     * Identifier literals are interned into {@link #symbols}.
      */
     public static final class CharStream {
 
-        private final String input;
+        private static final int DEFAULT_CAPACITY = 8192;
+
+        private CharSequence input;
+        private Reader reader;
+        private char[] window;
+        private int start = 0;
+        private int end = 0;
+        private boolean eof = false;
+        private SymbolTable symbols = new SymbolTable();
         private int index = 0;
         private int length = 0;
 
-        public CharStream(String input) {
+        public CharStream(CharSequence input) {
             this.input = input;
+            this.reader = null;
+        }
+
+        public CharStream(Reader reader, int capacity) {
+            this.input = null;
+            this.reader = reader;
+            this.window = new char[capacity];
+        }
+
+        /**
+         * Resets the stream to the start of {@code input}, dropping any reader
+         * and window it had.
+         */
+        public void reset(CharSequence input) {
+            this.input = input;
+            this.reader = null;
+            this.window = null;
+            this.start = 0;
+            this.end = 0;
+            this.eof = false;
+            this.index = 0;
+            this.length = 0;
         }
 
         public boolean has(int offset) {
-            return index + offset < input.length();
+            if (input != null) {
+                return index + offset < input.length();
+            }
+            return index + offset < end || fill(index + offset);
         }
 
         public char get(int offset) {
-         //   System.out.println(input.charAt(index + offset));
-            return input.charAt(index + offset);
+            if (input != null) {
+                return input.charAt(index + offset);
+            }
+            if (!has(offset)) {
+                throw new IndexOutOfBoundsException(index + offset);
+            }
+            return window[index + offset - start];
         }
 
         public void advance() {
@@ -235,7 +884,292 @@ public final class Lexer {
         public Token emit(Token.Type type) {
             int start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            if (input != null && type == Token.Type.IDENTIFIER) {
+                return new Token(type, symbols.intern(input, start, index - start), start);
+            } else if (input instanceof String) {
+                return new Token(type, ((String) input).substring(start, index), start);
+            } else if (input != null) {
+                return new Token(Token.Kind.of(type, input, start, index - start), input, start, index - start);
+            }
+            String literal = new String(window, start - this.start, index - start);
+            if (type == Token.Type.IDENTIFIER) {
+                literal = symbols.intern(literal);
+            }
+            return new Token(type, literal, start);
+        }
+
+        /**
+         * Appends the token being matched to the buffer, which must have been
+         * created by {@link #buffer()}.
+         */
+        public void emit(Token.Type type, TokenBuffer buffer) {
+            buffer.add(type, index - length, length);
+            skip();
+        }
+
+        /**
+         * Returns an empty token buffer over the input.
+         */
+        public TokenBuffer buffer() {
+            if (input == null) {
+                throw new IllegalStateException("Token buffers require an in-memory source.");
+            }
+            return new TokenBuffer(input, symbols);
+        }
+
+        /**
+         * Resets {@code buffer} to an empty buffer over the input.
+         */
+        public void buffer(TokenBuffer buffer) {
+            if (input == null) {
+                throw new IllegalStateException("Token buffers require an in-memory source.");
+            }
+            buffer.reset(input, symbols);
+        }
+
+        /**
+         * Reads from the reader until the character at absolute index
+         * {@code target} is buffered, discarding everything before the current
+         * token first. Returns false if the input ends before that.
+         */
+        private boolean fill(int target) {
+            int keep = index - length;
+            if (target - keep >= window.length) {
+                char[] grown = new char[Math.max(window.length * 2, target - keep + 1)];
+                System.arraycopy(window, keep - start, grown, 0, end - keep);
+                window = grown;
+            } else if (target - start >= window.length) {
+                System.arraycopy(window, keep - start, window, 0, end - keep);
+            } else {
+                keep = start;
+            }
+            start = keep;
+            try {
+                while (end <= target && !eof) {
+                    int read = reader.read(window, end - start, window.length - (end - start));
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        end += read;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return end > target;
+        }
+
+    }
+
+    /**
+     * The tokens of an input after one or more edits, made of pieces of the
+     * token lists lexed before. Each piece records how far its tokens have
+     * moved since they were lexed, and a token is only moved when first read.
+     * A relex therefore costs the number of pieces rather than the number of
+     * tokens, and adds at most two pieces.
+     */
+    private static final class EditedTokens extends AbstractList<Token> implements RandomAccess {
+
+        private final CharSequence input;
+        private final List<Piece> pieces = new ArrayList<>();
+        private int size = 0;
+
+        private EditedTokens(CharSequence input) {
+            this.input = input;
+        }
+
+        /**
+         * Returns the tokens of {@code previous} before {@code first}, then
+         * the {@code lexed} tokens, then those of {@code previous} from
+         * {@code next} moved by {@code delta}.
+         */
+        private static List<Token> of(CharSequence input, List<Token> previous, int first, List<Token> lexed, int next, int delta) {
+            EditedTokens tokens = new EditedTokens(input);
+            tokens.append(previous, 0, first, 0);
+            tokens.append(lexed, 0, lexed.size(), 0);
+            tokens.append(previous, next, previous.size(), delta);
+            return tokens;
+        }
+
+        /**
+         * Appends the tokens of {@code list} from {@code from} to {@code to},
+         * moved by {@code delta}, taking the pieces of an edited list apart so
+         * views are never nested.
+         */
+        private void append(List<Token> list, int from, int to, int delta) {
+            if (!(list instanceof EditedTokens)) {
+                append(new Piece(list, from, to, delta));
+                return;
+            }
+            int start = 0;
+            for (Piece piece : ((EditedTokens) list).pieces) {
+                int end = start + piece.to - piece.from;
+                int low = Math.max(from, start);
+                int high = Math.min(to, end);
+                if (low < high) {
+                    if (delta == 0) {
+                        // The tokens have not moved again, so those already moved are kept.
+                        append(new Piece(piece, piece.from + low - start, piece.from + high - start));
+                    } else {
+                        append(new Piece(piece.tokens, piece.from + low - start, piece.from + high - start, piece.delta + delta));
+                    }
+                }
+                start = end;
+            }
+        }
+
+        private void append(Piece piece) {
+            if (piece.from == piece.to) {
+                return;
+            }
+            Piece last = pieces.isEmpty() ? null : pieces.get(pieces.size() - 1);
+            if (last != null && last.tokens == piece.tokens && last.to == piece.from && last.delta == piece.delta) {
+                piece = new Piece(last.tokens, last.from, piece.to, last.delta);
+                pieces.remove(pieces.size() - 1);
+                size -= last.to - last.from;
+            }
+            size += piece.to - piece.from;
+            piece.end = size;
+            pieces.add(piece);
+        }
+
+        @Override
+        public Token get(int index) {
+            Objects.checkIndex(index, size);
+            int low = 0;
+            int high = pieces.size() - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (pieces.get(middle).end <= index) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            Piece piece = pieces.get(low);
+            int position = piece.to - (piece.end - index);
+            if (piece.delta == 0) {
+                return piece.tokens.get(position);
+            }
+            return piece.get(position, input);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+    /**
+     * The tokens of {@code tokens} from {@code from} to {@code to}, moved by
+     * {@code delta}, ending at {@code end} of an {@link EditedTokens}. Moved
+     * tokens are kept in {@code shifted}, where the token at position
+     * {@code i} of {@code tokens} is at {@code i - base}. Concurrent readers
+     * may both move the same token, which only costs an extra allocation.
+     */
+    private static final class Piece {
+
+        private final List<Token> tokens;
+        private final int from;
+        private final int to;
+        private final int delta;
+        private int end;
+        private final int base;
+        private Token[] shifted;
+
+        private Piece(List<Token> tokens, int from, int to, int delta) {
+            this.tokens = tokens;
+            this.from = from;
+            this.to = to;
+            this.delta = delta;
+            this.base = from;
+        }
+
+        /**
+         * Creates the part of {@code piece} from {@code from} to {@code to},
+         * sharing the tokens it has moved so far.
+         */
+        private Piece(Piece piece, int from, int to) {
+            this.tokens = piece.tokens;
+            this.from = from;
+            this.to = to;
+            this.delta = piece.delta;
+            this.base = piece.base;
+            this.shifted = piece.shifted;
+        }
+
+        /**
+         * Returns the token at {@code position} of {@code tokens}, moving it
+         * the first time it is read.
+         */
+        private Token get(int position, CharSequence input) {
+            Token[] shifted = this.shifted;
+            if (shifted == null) {
+                shifted = new Token[to - base];
+                this.shifted = shifted;
+            }
+            Token token = shifted[position - base];
+            if (token == null) {
+                token = tokens.get(position).shift(delta, input);
+                shifted[position - base] = token;
+            }
+            return token;
+        }
+
+    }
+
+    /**
+     * A {@link CharSequence} view of a buffer holding only ASCII bytes, which
+     * lets the lexer read characters straight out of a memory mapped file.
+     */
+    private static final class AsciiSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+
+        private AsciiSequence(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Returns true if no byte in the buffer has its high bit set, checking
+         * eight bytes at a time.
+         */
+        private static boolean isAscii(ByteBuffer buffer) {
+            int i = 0;
+            for (; i + Long.BYTES <= buffer.limit(); i += Long.BYTES) {
+                if ((buffer.getLong(i) & 0x8080808080808080L) != 0) {
+                    return false;
+                }
+            }
+            for (; i < buffer.limit(); i++) {
+                if (buffer.get(i) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buffer.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
         }
 
     }
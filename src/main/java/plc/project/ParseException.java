@@ -2,6 +2,13 @@ package plc.project;
 
 public final class ParseException extends RuntimeException {
 
+    /**
+     * Whether exceptions created on this thread skip capturing their stack
+     * trace, which is set while a {@link Parser} collects {@link Diagnostics}
+     * and catches each exception near where it was thrown.
+     */
+    private static final ThreadLocal<Boolean> RECOVERING = ThreadLocal.withInitial(() -> false);
+
     private final int index;
 
     public ParseException(String message, int index) {
@@ -13,4 +20,19 @@ public final class ParseException extends RuntimeException {
         return index;
     }
 
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return RECOVERING.get() ? this : super.fillInStackTrace();
+    }
+
+    /**
+     * Sets whether exceptions created on this thread skip capturing their
+     * stack trace, returning the previous setting.
+     */
+    static boolean setRecovering(boolean recovering) {
+        boolean previous = RECOVERING.get();
+        RECOVERING.set(recovering);
+        return previous;
+    }
+
 }
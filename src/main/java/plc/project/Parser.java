@@ -1,10 +1,16 @@
 package plc.project;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 
 /**
@@ -22,79 +28,359 @@ import java.util.Optional;
  */
 public final class Parser {
 
+    /**
+     * Every keyword, none of which may be used as a name.
+     */
+    private static final Set<Token.Kind> KEYWORDS = EnumSet.range(Token.Kind.LIST, Token.Kind.FALSE);
+
+    /**
+     * Keywords that cannot start an expression, unlike {@code NIL}, {@code
+     * TRUE} and {@code FALSE}.
+     */
+    private static final Set<Token.Kind> RESERVED = EnumSet.range(Token.Kind.LIST, Token.Kind.RETURN);
+
+    private static final Set<Token.Kind> STATEMENT_KEYWORDS = EnumSet.range(Token.Kind.LET, Token.Kind.FALSE);
+
+    private static final Set<Token.Kind> GLOBALS = EnumSet.of(Token.Kind.LIST, Token.Kind.VAR, Token.Kind.VAL);
+
+    private static final int LOGICAL = 1;
+    private static final int COMPARISON = 2;
+    private static final int ADDITIVE = 3;
+    private static final int MULTIPLICATIVE = 4;
+
+    /**
+     * Binary operators by literal. Adding an operator only takes registering
+     * its precedence and associativity here.
+     */
+    private static final Map<String, Operator> OPERATORS = new HashMap<>();
+
+    /**
+     * The registered operators that have a {@link Token.Kind} of their own,
+     * indexed by its ordinal so they are found without decoding the literal.
+     */
+    private static final Operator[] OPERATOR_KINDS = new Operator[Token.Kind.values().length];
+
+    static {
+        register(LOGICAL, false, "&&", "||");
+        register(COMPARISON, false, "<", ">", "==", "!=");
+        register(ADDITIVE, false, "+", "-");
+        register(MULTIPLICATIVE, false, "*", "/", "^");
+    }
+
     private final TokenStream tokens;
 
+    private ConstantPool constants = new ConstantPool();
+    private boolean iterative;
+    private Diagnostics diagnostics;
+    private ExpressionFrame[] frames = new ExpressionFrame[16];
+    private int depth;
+
     public Parser(List<Token> tokens) {
         this.tokens = new TokenStream(tokens);
     }
 
+    /**
+     * Creates a parser reading token types and literals directly out of the
+     * buffer's arrays instead of through {@link Token} objects.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = new TokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser pulling tokens from the lexer as it needs them instead
+     * of from a complete list, so parsing starts right away and only the few
+     * tokens around the current one are held in memory. Errors from the lexer
+     * are thrown when the parser reaches the invalid token.
+     */
+    public Parser(Lexer lexer) {
+        this.tokens = new TokenStream(lexer.iterator());
+    }
+
+    private Parser(TokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Returns the pool literal constants are interned into. Each parser
+     * starts with its own pool.
+     */
+    public ConstantPool getConstants() {
+        return constants;
+    }
+
+    /**
+     * Sets the pool literal constants are interned into, allowing several
+     * sources of one compilation to share constants.
+     */
+    public void setConstants(ConstantPool constants) {
+        this.constants = constants;
+    }
+
+    /**
+     * Sets whether expressions and blocks are parsed with explicit stacks
+     * instead of by recursion, so that deeply nested groups, calls, operators
+     * and {@code IF}/{@code WHILE}/{@code SWITCH} statements are limited by
+     * the heap rather than the thread's stack. The results and errors are
+     * the same in both modes.
+     */
+    public void setIterative(boolean iterative) {
+        this.iterative = iterative;
+    }
+
     /**
      * Parses the {@code source} rule.
      */
     public Ast.Source parseSource() throws ParseException {
         List<Ast.Global> globals= new ArrayList<>();
-        List<Ast.Function> functions= new ArrayList<>();
-        while(peek("LIST")||peek("VAR")||peek("VAL")){
+        while(peek(GLOBALS)){
             globals.add(parseGlobal());
         }
-        while(peek("FUN")){
-           functions.add(parseFunction());
-        }
-        if(peek("LIST")||peek("VAR")||peek("VAL")){
-            if(tokens.has(0)){
-                throw new ParseException("Global After Functions", tokens.get(0).getIndex());
+        return parseFunctions(globals, new ArrayList<>());
+    }
+
+    /**
+     * Parses the {@code source} rule like {@link #parseSource()}, but adds
+     * syntax errors to {@code diagnostics} and recovers from them instead of
+     * throwing, returning what did parse. Without errors the result is the
+     * same as {@link #parseSource()}, and otherwise the first error is the one
+     * it would have thrown.
+     *
+     * A statement with an error is left out and skipped up to its {@code ;},
+     * the {@code END} of its own blocks, or the {@code END}, {@code ELSE},
+     * {@code CASE} or {@code DEFAULT} of the enclosing block. A global or
+     * function with an error outside of its statements is left out and
+     * skipped up to the next {@code FUN}, {@code VAR}, {@code VAL} or {@code
+     * LIST}. An error at the same index as the previous one is not added
+     * again. Errors are still raised by the rules that find them, but are
+     * caught by the enclosing statement or declaration and skip capturing a
+     * stack trace. Blocks are parsed by recursion even if {@link
+     * #setIterative(boolean)} is set.
+     */
+    public Ast.Source parseSource(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        boolean recovering = ParseException.setRecovering(true);
+        try {
+            List<Ast.Global> globals = new ArrayList<>();
+            while (peek(GLOBALS)) {
+                int start = tokens.index;
+                try {
+                    globals.add(parseGlobal());
+                } catch (ParseException | IndexOutOfBoundsException e) {
+                    report(e);
+                    skipDeclaration(start);
+                }
+            }
+            List<Ast.Function> functions = new ArrayList<>();
+            while (true) {
+                int start = tokens.index;
+                try {
+                    Ast declaration = parseDeclaration(false);
+                    if (declaration == null) {
+                        return new Ast.Source(globals, functions);
+                    }
+                    functions.add((Ast.Function) declaration);
+                } catch (ParseException | IndexOutOfBoundsException e) {
+                    report(e);
+                    skipDeclaration(start);
+                }
             }
-            else  throw new ParseException("Global After Functions", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+        } finally {
+            ParseException.setRecovering(recovering);
+            this.diagnostics = null;
         }
-        return new Ast.Source(globals,functions);
+    }
 
+    /**
+     * Parses the {@code source} rule like {@link #parseSource()}, but parses
+     * the functions concurrently on the common {@link ForkJoinPool}. The
+     * parser must be over a {@link Token} list, as for {@link
+     * #parseSourceParallel(ForkJoinPool)}.
+     */
+    public Ast.Source parseSourceParallel() throws ParseException {
+        return parseSourceParallel(ForkJoinPool.commonPool());
     }
 
     /**
-     * Parses the {@code global} rule. This method should only be called if the
-     * next tokens start a global, aka {@code LIST|VAL|VAR}.
+     * Parses the {@code source} rule like {@link #parseSource()}, but parses
+     * the functions concurrently on the given pool. The parser must be over a
+     * {@link Token} list, and throws an {@link IllegalStateException} if it is
+     * over a {@link TokenBuffer} or reads from a {@link Lexer}.
+     *
+     * A pre-scan finds the {@code FUN} tokens outside of any block by
+     * counting {@code FUN}, {@code IF}, {@code WHILE} and {@code SWITCH}
+     * against {@code END}. Each function is parsed from its {@code FUN} and
+     * accepted if it ends where the next one starts; the first one that does
+     * not, and everything after it, is parsed serially instead. The result
+     * and any {@link ParseException} are therefore identical to those of
+     * {@link #parseSource()}: the first function that fails is the one the
+     * serial parser would have failed on.
      */
-    public Ast.Global parseGlobal() throws ParseException {
-        if (peek("LIST")){
-            Ast.Global lis=parseList();
-            if(!peek(";")){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected ; After Global", tokens.get(0).getIndex());
+    public Ast.Source parseSourceParallel(ForkJoinPool pool) throws ParseException {
+        if (tokens.buffer != null || tokens.source != null) {
+            throw new IllegalStateException("Parallel parsing requires a token list.");
+        }
+        List<Ast.Global> globals= new ArrayList<>();
+        while(peek(GLOBALS)){
+            globals.add(parseGlobal());
+        }
+        int[] starts = peek(Token.Kind.FUN) ? findFunctions() : new int[0];
+        Ast.Function[] functions = new Ast.Function[starts.length];
+        int[] ends = new int[starts.length];
+        ConstantPool[] pools = new ConstantPool[starts.length];
+        RuntimeException[] exceptions = new RuntimeException[starts.length];
+        int group = Math.max(1, starts.length / (pool.getParallelism() * 4));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int first = 0; first < starts.length; first += group) {
+            int from = first, to = Math.min(first + group, starts.length);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                // Functions after one that fails or ends early are parsed serially.
+                for (int i = from; i < to; i++) {
+                    Parser parser = new Parser(tokens.at(starts[i]));
+                    parser.iterative = iterative;
+                    pools[i] = parser.constants;
+                    try {
+                        functions[i] = parser.parseFunction();
+                        ends[i] = parser.tokens.index;
+                    } catch (RuntimeException e) {
+                        exceptions[i] = e;
+                        return;
+                    }
+                    if (i + 1 < starts.length && ends[i] != starts[i + 1]) {
+                        return;
+                    }
                 }
-                else  throw new ParseException("Expected ; After Global", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        List<Ast.Function> parsed = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (exceptions[i] != null) {
+                throw exceptions[i];
             }
-            else{
-                match(";");
-                return lis;
+            parsed.add(functions[i]);
+            // Merging each function's constants in order assigns the same ids
+            // as parsing serially, though equal literals in different
+            // functions remain separate instances.
+            for (int id = 0; id < pools[i].size(); id++) {
+                constants.id(pools[i].getConstant(id));
             }
-        }
-        if (peek("VAR")){
-            Ast.Global var=parseMutable();
-            if(!peek(";")){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected ; After Global", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Expected ; After Global", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+            tokens.index = ends[i];
+            if (i + 1 < starts.length && ends[i] != starts[i + 1]) {
+                break;
             }
-            else{
-                match(";");
-                return var;
+        }
+        return parseFunctions(globals, parsed);
+    }
+
+    /**
+     * Returns the indices of the {@code FUN} tokens from the current one that
+     * are outside of any block.
+     */
+    private int[] findFunctions() {
+        int[] starts = new int[16];
+        int count = 0;
+        int depth = 0;
+        for (int offset = 0; tokens.has(offset); offset++) {
+            switch (tokens.getKind(offset)) {
+                case FUN:
+                    if (depth == 0) {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                        }
+                        starts[count++] = tokens.index + offset;
+                    }
+                    depth++;
+                    break;
+                case IF:
+                case WHILE:
+                case SWITCH:
+                    depth++;
+                    break;
+                case END:
+                    depth = Math.max(0, depth - 1);
+                    break;
+                default:
+                    break;
             }
         }
-        if (peek("VAL")){
-            Ast.Global val=parseImmutable();
-            if(!peek(";")){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected ; After Global", tokens.get(0).getIndex());
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Parses the functions following the globals of the {@code source} rule,
+     * adding them to those already parsed.
+     */
+    private Ast.Source parseFunctions(List<Ast.Global> globals, List<Ast.Function> functions) throws ParseException {
+        for (Ast declaration; (declaration = parseDeclaration(false)) != null; ) {
+            functions.add((Ast.Function) declaration);
+        }
+        return new Ast.Source(globals,functions);
+
+    }
+
+    /**
+     * Parses the next global or function of the {@code source} rule, or
+     * returns null at the end of the source. Globals are only accepted while
+     * {@code globals} is true, that is before the first function.
+     */
+    Ast parseDeclaration(boolean globals) throws ParseException {
+        if (!tokens.has(0)) {
+            return null;
+        }
+        switch (tokens.getKind(0)) {
+            case FUN:
+                return parseFunction();
+            case LIST:
+            case VAR:
+            case VAL:
+                if (globals) {
+                    return parseGlobal();
                 }
-                else  throw new ParseException("Expected ; After Global", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            else{
-                match(";");
-                return val;
-            }
+                throw error("Global After Functions");
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the index of the next token in the input, or -1 if there are
+     * no more tokens.
+     */
+    int peekIndex() {
+        return tokens.has(0) ? tokens.get(0).getIndex() : -1;
+    }
+
+    /**
+     * Returns the index in the input just past the previous token.
+     */
+    int previousEnd() {
+        return tokens.get(-1).getIndex() + tokens.get(-1).getLength();
+    }
+
+    /**
+     * Parses the {@code global} rule. This method should only be called if the
+     * next tokens start a global, aka {@code LIST|VAL|VAR}.
+     */
+    public Ast.Global parseGlobal() throws ParseException {
+        Ast.Global global;
+        switch (tokens.getKind(0)) {
+            case LIST:
+                global = parseList();
+                break;
+            case VAR:
+                global = parseMutable();
+                break;
+            case VAL:
+                global = parseImmutable();
+                break;
+            default:
+                throw new ParseException("Unknown Global Error", tokens.get(0).getIndex());
+        }
+        if (!match(Token.Kind.SEMICOLON)) {
+            throw error("Expected ; After Global");
         }
-            throw new ParseException("Unknown Global Error", tokens.get(0).getIndex());
+        return global;
     }
 
 
@@ -103,10 +389,10 @@ public final class Parser {
      * next token declares a list, aka {@code LIST}.
      */
     public Ast.Global parseList() throws ParseException {
-       if(peek("LIST")) {
-           match("LIST");
+       if(peek(Token.Kind.LIST)) {
+           match(Token.Kind.LIST);
            if (peek(Token.Type.IDENTIFIER)) {
-               if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")||peek("NIL")||peek("TRUE")||peek("FALSE")){
+               if(peek(KEYWORDS)){
 
                    if(tokens.has(0)){
                        throw new ParseException("Expected Nonkeyword Identifier", tokens.get(0).getIndex());
@@ -115,12 +401,12 @@ public final class Parser {
                }
                String name = tokens.get(0).getLiteral();
                match(Token.Type.IDENTIFIER);
-               if(peek("=")){
-                   match("=");
-                   if(peek("[")){
-                       match("[");
+               if(peek(Token.Kind.EQUALS)){
+                   match(Token.Kind.EQUALS);
+                   if(peek(Token.Kind.LEFT_BRACKET)){
+                       match(Token.Kind.LEFT_BRACKET);
                        ///////////////////////////////////
-                       if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN") ){
+                       if(peek(RESERVED)){
                            if(tokens.has(0)){
                                throw new ParseException("Expected Nonkeyword Expression", tokens.get(0).getIndex());
                            }
@@ -128,19 +414,19 @@ public final class Parser {
 
                        }//keyword
 
-                   if(peek("NIL") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER)){
+                   if(peekExpression()){
 
                        List<Ast.Expression> firstlist= new ArrayList<>();
                        Ast.Expression expr=parseExpression();
                        firstlist.add(expr);
-                       if (peek(",")) {
+                       if (peek(Token.Kind.COMMA)) {
 
-                           while (peek(",")) {
-                               match(",");
-                               if (peek("]")) {
+                           while (peek(Token.Kind.COMMA)) {
+                               match(Token.Kind.COMMA);
+                               if (peek(Token.Kind.RIGHT_BRACKET)) {
                                    throw new ParseException("Trailing Comma In GLOBAL LIST", tokens.get(0).getIndex());
                                }
-                               if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN") ){
+                               if(peek(RESERVED)){
                                    if(tokens.has(0)){
                                        throw new ParseException("Expected Nonkeyword Expression", tokens.get(0).getIndex());
                                    }
@@ -148,7 +434,7 @@ public final class Parser {
 
                                }//keyword
 
-                               if(peek("NIL") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER)) {
+                               if(peekExpression()) {
 
                                    firstlist.add(parseExpression());
 
@@ -164,8 +450,8 @@ public final class Parser {
 
                        }
 
-                       if(peek("]")){
-                           match("]");
+                       if(peek(Token.Kind.RIGHT_BRACKET)){
+                           match(Token.Kind.RIGHT_BRACKET);
                            Ast.Expression.PlcList seclist=new Ast.Expression.PlcList(firstlist);
                            return new Ast.Global(name,true,Optional.of(seclist));}
                        else{
@@ -212,10 +498,10 @@ public final class Parser {
      * next token declares a mutable global variable, aka {@code VAR}.
      */
     public Ast.Global parseMutable() throws ParseException {
-        if(peek("VAR")){
-            match("VAR");
+        if(peek(Token.Kind.VAR)){
+            match(Token.Kind.VAR);
             if(peek(Token.Type.IDENTIFIER)){
-                if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")||peek("NIL")||peek("TRUE")||peek("FALSE")){
+                if(peek(KEYWORDS)){
 
                     if(tokens.has(0)){
                         throw new ParseException("Expected Nonkeyword Identifier", tokens.get(0).getIndex());
@@ -224,9 +510,9 @@ public final class Parser {
                 }
                 String name = tokens.get(0).getLiteral();
                 match(Token.Type.IDENTIFIER);
-                if(peek("=")){
-                    match("=");
-                    if(peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER)){
+                if(peek(Token.Kind.EQUALS)){
+                    match(Token.Kind.EQUALS);
+                    if(peekExpression()){
                         Ast.Expression expr=parseExpression();
                         return new Ast.Global(name,true,Optional.of(expr));
                     }
@@ -259,10 +545,10 @@ public final class Parser {
      * next token declares an immutable global variable, aka {@code VAL}.
      */
     public Ast.Global parseImmutable() throws ParseException {
-       if(peek("VAL")){
-           match("VAL");
+       if(peek(Token.Kind.VAL)){
+           match(Token.Kind.VAL);
            if(peek(Token.Type.IDENTIFIER)){
-               if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")||peek("NIL")||peek("TRUE")||peek("FALSE")){
+               if(peek(KEYWORDS)){
 
                    if(tokens.has(0)){
                        throw new ParseException("Expected Nonkeyword Identifier", tokens.get(0).getIndex());
@@ -271,9 +557,9 @@ public final class Parser {
                }
                String name = tokens.get(0).getLiteral();
                match(Token.Type.IDENTIFIER);
-               if(peek("=")){
-                   match("=");
-                   if(peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER)){
+               if(peek(Token.Kind.EQUALS)){
+                   match(Token.Kind.EQUALS);
+                   if(peekExpression()){
                        Ast.Expression expr=parseExpression();
                        return new Ast.Global(name,false,Optional.of(expr));
                    }
@@ -308,22 +594,22 @@ public final class Parser {
      * next tokens start a method, aka {@code FUN}.
      */
     public Ast.Function parseFunction() throws ParseException {
-        if(peek("FUN")) {
-            match("FUN");
+        if(peek(Token.Kind.FUN)) {
+            match(Token.Kind.FUN);
             if (peek(Token.Type.IDENTIFIER)) {
-                if(peek("VAL")||peek("VAR")||peek("LIST")){
+                if(peek(GLOBALS)){
                     if(tokens.has(0)){
                         throw new ParseException("Global Keyword In Function Name", tokens.get(0).getIndex());
                     }
                     else  throw new ParseException("Global Keyword In Function Name", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                 }
-                if(peek("FUN")){
+                if(peek(Token.Kind.FUN)){
                     if(tokens.has(0)){
                         throw new ParseException("Unexpected FUN Keyword", tokens.get(0).getIndex());
                     }
                     else  throw new ParseException("Unexpected FUN Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                 }
-                if(peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")||peek("NIL")||peek("TRUE")||peek("FALSE")){
+                if(peek(STATEMENT_KEYWORDS)){
                     if(tokens.has(0)){
                         throw new ParseException("Expected Nonkeyword Identifier", tokens.get(0).getIndex());
                     }
@@ -331,25 +617,25 @@ public final class Parser {
                 }
                 String name = tokens.get(0).getLiteral();
                 match(Token.Type.IDENTIFIER);
-                if (peek("(")) {
-                    match("(");
+                if (peek(Token.Kind.LEFT_PAREN)) {
+                    match(Token.Kind.LEFT_PAREN);
                     //  List<Ast.Expression> argumentsb = new ArrayList<>();
                     List<String> arguments = new ArrayList<>();
-                    while (!peek(")") && peek(Token.Type.IDENTIFIER)) {
+                    while (!peek(Token.Kind.RIGHT_PAREN) && peek(Token.Type.IDENTIFIER)) {
                         if (peek(Token.Type.IDENTIFIER)) {
-                            if(peek("VAL")||peek("VAR")||peek("LIST")){
+                            if(peek(GLOBALS)){
                                 if(tokens.has(0)){
                                     throw new ParseException("Global Keyword In Function Parameter", tokens.get(0).getIndex());
                                 }
                                 else  throw new ParseException("Global Keyword In Function Parameter", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                             }
-                            if(peek("FUN")){
+                            if(peek(Token.Kind.FUN)){
                                 if(tokens.has(0)){
                                     throw new ParseException("Unexpected FUN Keyword", tokens.get(0).getIndex());
                                 }
                                 else  throw new ParseException("Unexpected FUN Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                             }
-                            if(peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")||peek("NIL")||peek("TRUE")||peek("FALSE")){
+                            if(peek(STATEMENT_KEYWORDS)){
                                 if(tokens.has(0)){
                                     throw new ParseException("Expected Nonkeyword Identifier", tokens.get(0).getIndex());
                                 }
@@ -357,9 +643,9 @@ public final class Parser {
                             }
                             arguments.add(tokens.get(0).getLiteral());
                             Ast.Expression first = parseExpression();
-                            if (peek(",")) {
-                                match(",");
-                                if (peek(")")) {
+                            if (peek(Token.Kind.COMMA)) {
+                                match(Token.Kind.COMMA);
+                                if (peek(Token.Kind.RIGHT_PAREN)) {
                                     throw new ParseException("Trailing Comma In Function Call", tokens.get(0).getIndex());
                                 }
                             }
@@ -370,26 +656,26 @@ public final class Parser {
                             else  throw new ParseException("Expected Identifier", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                         }
                     }
-                    if (peek(")")) {
-                        match(")");
-                        if (peek("DO")) {
-                            match("DO");
-                            if ((peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER))) {
-                                if(peek("VAL")||peek("VAR")||peek("LIST")){
+                    if (peek(Token.Kind.RIGHT_PAREN)) {
+                        match(Token.Kind.RIGHT_PAREN);
+                        if (peek(Token.Kind.DO)) {
+                            match(Token.Kind.DO);
+                            if (peekExpression()) {
+                                if(peek(GLOBALS)){
                                     if(tokens.has(0)){
                                         throw new ParseException("Global Keyword In Function Block", tokens.get(0).getIndex());
                                     }
                                     else  throw new ParseException("Global Keyword In Function Block", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                                 }
-                                if(peek("FUN")){
+                                if(peek(Token.Kind.FUN)){
                                     if(tokens.has(0)){
                                         throw new ParseException("Unexpected FUN Keyword", tokens.get(0).getIndex());
                                     }
                                     else  throw new ParseException("Unexpected FUN Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                                 }
                                 List<Ast.Statement> bloc = parseBlock(); //add parseexception check?
-                                if (peek("END")) {
-                                    match("END");
+                                if (peek(Token.Kind.END)) {
+                                    match(Token.Kind.END);
                                     return new Ast.Function(name, arguments, bloc);
                                 } else {
                                     if(tokens.has(0)){
@@ -441,98 +727,188 @@ public final class Parser {
      * preceding token indicates the opening a block of statements.
      */
     public List<Ast.Statement> parseBlock() throws ParseException {
+        if (iterative && diagnostics == null) {
+            return parseBlockIteratively();
+        }
         List<Ast.Statement> Statements = new ArrayList<>();
-        while ((!peek("END") && !peek("ELSE") && !peek("CASE") && !peek("DEFAULT") && !peek("DO") && !peek("LIST") && !peek("VAR") && !peek("VAL")) && ((peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER)))){
-            Statements.add(parseStatement());
-            if(peek("LIST")){
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected LIST", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Unexpected LIST", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            if(peek("VAR")){
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected VAR", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Unexpected VAR", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            if(peek("VAL")) {
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected VAL", tokens.get(0).getIndex());
+        while (peekStatement()){
+            if (diagnostics == null) {
+                Statements.add(parseStatement());
+            } else {
+                Ast.Statement statement = parseStatementOrRecover();
+                if (statement != null) {
+                    Statements.add(statement);
                 }
-                else  throw new ParseException("Unexpected VAL", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
             }
-            if(peek("FUN")){
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected FUN Keyword", tokens.get(0).getIndex());
+            if (tokens.has(0)) {
+                switch (tokens.getKind(0)) {
+                    case LIST:
+                        throw error("Unexpected LIST");
+                    case VAR:
+                        throw error("Unexpected VAR");
+                    case VAL:
+                        throw error("Unexpected VAL");
+                    case FUN:
+                        throw error("Unexpected FUN Keyword");
+                    default:
+                        break;
                 }
-                else  throw new ParseException("Unexpected FUN Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
             }
     }
 //EXTRA EXCEPTION CHECKING NEEDED,
     return Statements;
     }
+    /**
+     * Parses a statement while collecting diagnostics, returning null after
+     * reporting an error and skipping the rest of the statement.
+     */
+    private Ast.Statement parseStatementOrRecover() {
+        boolean compound = peek(Token.Kind.IF) || peek(Token.Kind.WHILE) || peek(Token.Kind.SWITCH);
+        try {
+            return parseStatement();
+        } catch (ParseException | IndexOutOfBoundsException e) {
+            report(e);
+            synchronize(compound ? 1 : 0);
+            return null;
+        }
+    }
+
+    /**
+     * Skips tokens after an error in a statement nested in {@code depth}
+     * blocks of its own: up to and including its {@code ;} or the {@code END}
+     * of those blocks, and otherwise up to the keyword ending the enclosing
+     * block or starting the next declaration.
+     */
+    private void synchronize(int depth) {
+        for (; tokens.has(0); tokens.advance()) {
+            switch (tokens.getKind(0)) {
+                case FUN:
+                case LIST:
+                case VAR:
+                case VAL:
+                    return;
+                case IF:
+                case WHILE:
+                case SWITCH:
+                    depth++;
+                    break;
+                case END:
+                    if (depth == 0) {
+                        return;
+                    } else if (--depth == 0) {
+                        tokens.advance();
+                        return;
+                    }
+                    break;
+                case ELSE:
+                case CASE:
+                case DEFAULT:
+                    if (depth == 0) {
+                        return;
+                    }
+                    break;
+                default:
+                    if (depth == 0 && peek(Token.Kind.SEMICOLON)) {
+                        tokens.advance();
+                        return;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Skips tokens after an error in the declaration starting at {@code
+     * start}, past at least one token and up to the next declaration.
+     */
+    private void skipDeclaration(int start) {
+        if (tokens.index == start && tokens.has(0)) {
+            tokens.advance();
+        }
+        while (tokens.has(0) && !peek(Token.Kind.FUN) && !peek(GLOBALS)) {
+            tokens.advance();
+        }
+    }
+
+    /**
+     * Adds the error to the diagnostics, unless the previous error is at the
+     * same index, which is usually the same problem found again by an
+     * enclosing rule. Some rules read past the last token instead of throwing
+     * a {@link ParseException}, which is reported as the end of the input.
+     */
+    private void report(RuntimeException exception) {
+        String message;
+        int index;
+        if (exception instanceof ParseException) {
+            message = exception.getMessage();
+            index = ((ParseException) exception).getIndex();
+        } else if (!tokens.has(0)) {
+            message = "Unexpected End Of Input";
+            index = tokens.index > 0 ? previousEnd() : 0;
+        } else {
+            throw exception;
+        }
+        int size = diagnostics.size();
+        if (size == 0 || diagnostics.getIndex(size - 1) != index) {
+            diagnostics.add(message, index);
+        }
+    }
+
     /**
      * Parses the {@code statement} rule and delegates to the necessary method.
      * If the next tokens do not start a declaration, if, while, or return
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Statement parseStatement() throws ParseException {
-            if (peek("LET")) {
-                return (parseDeclarationStatement());
-            } else if (peek("SWITCH")) {
-                return (parseSwitchStatement());
-            } else if (peek("IF")) {
-                return (parseIfStatement());
-            } else if (peek("WHILE")) {
-                return (parseWhileStatement());
-            } else if (peek("RETURN")) {
-                return (parseReturnStatement());
-            } else if (peek(Token.Type.IDENTIFIER)) {
-                if(peek("VAL")||peek("VAR")||peek("LIST")){
-                    if(tokens.has(0)){
-                        throw new ParseException("Global Keyword In Statement", tokens.get(0).getIndex());
-                    }
-                    else  throw new ParseException("Global Keyword In Statement", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-                }
-                if(peek("FUN")){
-                    if(tokens.has(0)){
-                        throw new ParseException("Unexpected FUN Keyword", tokens.get(0).getIndex());
-                    }
-                    else  throw new ParseException("Unexpected FUN Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-                }
-                    // tokens.advance();
-                    String name = tokens.get(0).getLiteral();
-                    System.out.println(name);
-                    Ast.Expression first = parseExpression();
-                    if (peek("=")) {
-                        match("=");
-                        // It's an assignment
-                        Ast.Expression value = parseExpression(); // Parse the value to be assigned
-                        if (!peek(";")) {
-                            // System.out.print(tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-                            if(tokens.has(0)){
-                                throw new ParseException("Expected ; After Assignment", tokens.get(0).getIndex());
-                            }
-                            else  throw new ParseException("Expected ; After Assignment", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-                        }
-                        if (peek(";")) {
-                            match(";");
-                        }
-                        // Ast.Expression.Access receiver = new Ast.Expression.Access(Optional.empty(),  name);
-                        return new Ast.Statement.Assignment(first, value);
-                    }
-                 else if (peek(";")) {
-                        match(";");
-                        return new Ast.Statement.Expression(first);
-                    } else {
-                        if(tokens.has(0)){
-                            throw new ParseException("Expected ; After Expression", tokens.get(0).getIndex());
-                        }
-                        else  throw new ParseException("Expected ; After Expression", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-                    }
+        switch (tokens.getKind(0)) {
+            case LET:
+                return parseDeclarationStatement();
+            case SWITCH:
+                return parseSwitchStatement();
+            case IF:
+                return parseIfStatement();
+            case WHILE:
+                return parseWhileStatement();
+            case RETURN:
+                return parseReturnStatement();
+            case LIST:
+            case VAR:
+            case VAL:
+                throw error("Global Keyword In Statement");
+            case FUN:
+                throw error("Unexpected FUN Keyword");
+            case IDENTIFIER:
+            case CASE:
+            case DEFAULT:
+            case END:
+            case DO:
+            case ELSE:
+            case NIL:
+            case TRUE:
+            case FALSE:
+                return parseExpressionStatement();
+            default:
+                throw new ParseException("Really should not hit here", tokens.get(0).getIndex());
+        }
+    }
+
+    /**
+     * Parses an expression or assignment statement from the {@code statement}
+     * rule, which starts with an identifier.
+     */
+    private Ast.Statement parseExpressionStatement() throws ParseException {
+        Ast.Expression first = parseExpression();
+        if (match(Token.Kind.EQUALS)) {
+            // It's an assignment
+            Ast.Expression value = parseExpression(); // Parse the value to be assigned
+            if (!match(Token.Kind.SEMICOLON)) {
+                throw error("Expected ; After Assignment");
             }
-        throw new ParseException("Really should not hit here", tokens.get(0).getIndex());
+            return new Ast.Statement.Assignment(first, value);
+        } else if (match(Token.Kind.SEMICOLON)) {
+            return new Ast.Statement.Expression(first);
+        }
+        throw error("Expected ; After Expression");
     }
 
     /**
@@ -544,9 +920,9 @@ public final class Parser {
 
 
         // Expect the current token to be an identifier for the variable name
-match("LET");
+match(Token.Kind.LET);
 if(peek(Token.Type.IDENTIFIER)){
-        if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")||peek("NIL")||peek("TRUE")||peek("FALSE")){
+        if(peek(KEYWORDS)){
 
             if(tokens.has(0)){
                 throw new ParseException("Expected Nonkeyword Identifier", tokens.get(0).getIndex());
@@ -558,14 +934,14 @@ if(peek(Token.Type.IDENTIFIER)){
 
         // Optional initialization expression
         Optional<Ast.Expression> initializer = Optional.empty();
-        if (peek("=")) {
-            match("=");
+        if (peek(Token.Kind.EQUALS)) {
+            match(Token.Kind.EQUALS);
             // If there's an '=', parse the following expression as the initializer
             initializer = Optional.of(parseExpression());
         }
 
         // Ensure the statement ends with a semicolon
-        if (!peek(";")) {
+        if (!peek(Token.Kind.SEMICOLON)) {
             if(tokens.has(0)){
                 throw new ParseException("Expected ;", tokens.get(0).getIndex());
             }
@@ -591,25 +967,25 @@ else{
      * {@code IF}.
      */
     public Ast.Statement.If parseIfStatement() throws ParseException {
-        if(peek("IF")) {
-            match("IF");
-            if (!peek("NIL") && !peek("TRUE") && !peek("FALSE") && !peek(Token.Type.INTEGER) && !peek(Token.Type.DECIMAL) && !peek(Token.Type.CHARACTER) && !peek(Token.Type.STRING) && !peek("(") && !peek(Token.Type.IDENTIFIER)) {
+        if(peek(Token.Kind.IF)) {
+            match(Token.Kind.IF);
+            if (!peekExpression()) {
                 throw new ParseException("Expected Expression After IF.", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
             }
             Ast.Expression expr = parseExpression();
-            if (peek("DO")) {
-                match("DO");
+            if (peek(Token.Kind.DO)) {
+                match(Token.Kind.DO);
                 List<Ast.Statement> bloc = new ArrayList<>();
                 List<Ast.Statement> bloc2 = new ArrayList<>();
-                if ((peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER))) {
+                if (peekExpression()) {
                     bloc = parseBlock();//add fuller parseexception check? e.g. can be any identifier includimg FUN, VAL, etc.
-                    if (peek("ELSE")) {
-                        match("ELSE");
+                    if (peek(Token.Kind.ELSE)) {
+                        match(Token.Kind.ELSE);
 
-                        if ((peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER))) {
+                        if (peekExpression()) {
                             bloc2 = parseBlock();//add parseexception check? e.g. can be any identifier includimg FUN, VAL, etc.
-                            if (peek("END")) {
-                                match("END");
+                            if (peek(Token.Kind.END)) {
+                                match(Token.Kind.END);
                                 return new Ast.Statement.If(expr, bloc, bloc2);
                             } else {
                                 if(tokens.has(0)){
@@ -620,8 +996,8 @@ else{
 
                         }
                     } else {
-                        if (peek("END")) {
-                            match("END");
+                        if (peek(Token.Kind.END)) {
+                            match(Token.Kind.END);
                             return new Ast.Statement.If(expr, bloc, bloc2);
                         } else {
                             if(tokens.has(0)){
@@ -658,8 +1034,8 @@ else{
      * {@code SWITCH}.
      */
     public Ast.Statement.Switch parseSwitchStatement() throws ParseException {
-        match("SWITCH");
-        if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
+        match(Token.Kind.SWITCH);
+        if(!peekExpression()){
             if(tokens.has(0)){
                 throw new ParseException("Expected Expression After SWITCH", tokens.get(0).getIndex());
             }
@@ -667,11 +1043,11 @@ else{
         }
         Ast.Expression expr=parseExpression();
         List<Ast.Statement.Case> Cases=new ArrayList<>();
-        while(peek("CASE")){
+        while(peek(Token.Kind.CASE)){
             Cases.add(parseCaseStatement());
 
         }
-        if(peek("DEFAULT")){
+        if(peek(Token.Kind.DEFAULT)){
             Cases.add(parseCaseStatement());
         }
         else{
@@ -681,8 +1057,8 @@ else{
             else  throw new ParseException("Expected DEFAULT Case", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
         }
 
-        if (peek("END")) {
-            match("END");
+        if (peek(Token.Kind.END)) {
+            match(Token.Kind.END);
 
             return new Ast.Statement.Switch(expr,Cases);
 
@@ -702,12 +1078,12 @@ else{
      * default block of a switch statement, aka {@code CASE} or {@code DEFAULT}.
      */
     public Ast.Statement.Case parseCaseStatement() throws ParseException {
-    if(peek("CASE")){
-        match("CASE");
-        if((peek("NIL") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER))) {
+    if(peek(Token.Kind.CASE)){
+        match(Token.Kind.CASE);
+        if (peekExpression()) {
             Ast.Expression expr=parseExpression();
-            if(peek(":")){
-                match(":");
+            if(peek(Token.Kind.COLON)){
+                match(Token.Kind.COLON);
                 List<Ast.Statement> bloc = parseBlock(); //parseexception check needed?
                  return new Ast.Statement.Case(Optional.of(expr),bloc);
             }
@@ -727,8 +1103,8 @@ else{
         }
 
     }
-    if(peek("DEFAULT")){
-        match("DEFAULT");
+    if(peek(Token.Kind.DEFAULT)){
+        match(Token.Kind.DEFAULT);
         List<Ast.Statement> bloc = parseBlock(); //add parseexception check?
         return new Ast.Statement.Case(Optional.empty(),bloc);
     }
@@ -749,8 +1125,8 @@ else{
      * {@code WHILE}.
      */
     public Ast.Statement.While parseWhileStatement() throws ParseException {
-        match("WHILE");
-        if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
+        match(Token.Kind.WHILE);
+        if(!peekExpression()){
 
             if(tokens.has(0)){
                 throw new ParseException("Expected Expression After While", tokens.get(0).getIndex());
@@ -758,14 +1134,14 @@ else{
             else  throw new ParseException("Expected Expression After While", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
         }
         Ast.Expression expr=parseExpression();
-        if(peek("DO")){
-            match("DO");
+        if(peek(Token.Kind.DO)){
+            match(Token.Kind.DO);
 
 
-            if((peek("NIL") || peek("LET") || peek("SWITCH") || peek("IF") || peek("WHILE") || peek("RETURN") || peek("TRUE") || peek("FALSE") || peek(Token.Type.INTEGER) || peek(Token.Type.DECIMAL) || peek(Token.Type.CHARACTER) || peek(Token.Type.STRING) || peek("(") || peek(Token.Type.IDENTIFIER))) {
+            if (peekExpression()) {
                 List<Ast.Statement> bloc = parseBlock(); //add parseexception check?
-                if (peek("END")) {
-                    match("END");
+                if (peek(Token.Kind.END)) {
+                    match(Token.Kind.END);
                     return new Ast.Statement.While(expr,bloc);
                 } else {
                     if(tokens.has(0)){
@@ -797,15 +1173,15 @@ else{
      * {@code RETURN}.
      */
     public Ast.Statement.Return parseReturnStatement() throws ParseException {
-        match("RETURN");
-        if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
+        match(Token.Kind.RETURN);
+        if(!peekExpression()){
             if(tokens.has(0)){
                 throw new ParseException("Expected Expression After Return", tokens.get(0).getIndex());
             }
             else  throw new ParseException("Expected Expression After Return", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
         }
         Ast.Expression value=parseExpression();
-        if (!peek(";")) {
+        if (!peek(Token.Kind.SEMICOLON)) {
             if(tokens.has(0)){
                 throw new ParseException("Expected ; After Return Value", tokens.get(0).getIndex());
             }
@@ -818,7 +1194,10 @@ else{
      * Parses the {@code expression} rule.
      */
     public Ast.Expression parseExpression() throws ParseException {
-        if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")){
+        if (iterative) {
+            return parseExpressionIteratively();
+        }
+        if(peek(RESERVED)){
 
             if(tokens.has(0)){
                 throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
@@ -833,109 +1212,85 @@ else{
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expression parseLogicalExpression() throws ParseException {
-        Ast.Expression left = parseComparisonExpression();
+        return parseBinaryExpression(LOGICAL);
+    }
 
-        while (peek(Token.Type.OPERATOR) && (peek("&&") || peek("||"))) {
-            String operator = tokens.get(0).getLiteral();
-            tokens.advance(); // Move past the operator
-            if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")){
+    /**
+     * Parses the {@code comparison-expression} rule.
+     */
+    public Ast.Expression parseComparisonExpression() throws ParseException {
+        return parseBinaryExpression(COMPARISON);
+    }
 
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Unexpected Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected Operand", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Expected Operand", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            Ast.Expression right = parseComparisonExpression(); // Parse the right operand
+    /**
+     * Parses the {@code additive-expression} rule.
+     */
+    public Ast.Expression parseAdditiveExpression() throws ParseException {
+        return parseBinaryExpression(ADDITIVE);
+    }
 
-            left = new Ast.Expression.Binary(operator, left, right); // Construct a new binary expression
-        }
+    /**
+     * Parses the {@code multiplicative-expression} rule.
+     */
+    public Ast.Expression parseMultiplicativeExpression() throws ParseException {
+        return parseBinaryExpression(MULTIPLICATIVE);
+    }
 
-        return left;
+    /**
+     * Parses a sequence of primary expressions joined by binary operators of
+     * at least the given precedence, using the {@link #OPERATORS} table.
+     */
+    private Ast.Expression parseBinaryExpression(int precedence) throws ParseException {
+        return parseBinaryExpression(parsePrimaryExpression(), precedence);
     }
+
     /**
-     * Parses the {@code comparison-expression} rule.
+     * Continues a binary expression from its parsed left operand by precedence
+     * climbing: each operator takes a primary expression as its right operand,
+     * extended by any following operators that bind tighter before the
+     * operator itself is applied.
      */
-    public Ast.Expression parseComparisonExpression() throws ParseException {
-        Ast.Expression result = parseAdditiveExpression(); // Start with the next precedence level
-        while (peek("<") || peek(">") || peek("==") || peek("!=")) {
-            String operator = tokens.get(0).getLiteral();
+    private Ast.Expression parseBinaryExpression(Ast.Expression left, int precedence) throws ParseException {
+        for (Operator operator = peekOperator(); operator != null && operator.precedence >= precedence; operator = peekOperator()) {
             tokens.advance(); // Move past the operator
-            if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")){
-
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Unexpected Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected Operand", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Expected Operand", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+            requireOperand();
+            Ast.Expression right = parsePrimaryExpression();
+            for (Operator next = peekOperator(); next != null && next.binds(operator); next = peekOperator()) {
+                right = parseBinaryExpression(right, next.precedence > operator.precedence ? operator.precedence + 1 : operator.precedence);
             }
-            Ast.Expression right = parseAdditiveExpression(); // Parse the right side of the binary expression
-            result = new Ast.Expression.Binary(operator, result, right); // Form a binary expression
+            left = new Ast.Expression.Binary(operator.literal, left, right); // Form a binary expression
         }
-        return result;
+        return left;
     }
 
     /**
-     * Parses the {@code additive-expression} rule.
+     * Returns the binary operator at the next token, or null if there is none.
      */
-    public Ast.Expression parseAdditiveExpression() throws ParseException {
-        Ast.Expression result = parseMultiplicativeExpression(); // Start with the next precedence level
-        while (peek("+") || peek("-")) {
-            String operator = tokens.get(0).getLiteral();
-            tokens.advance(); // Move past the operator
-            if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")){
-
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Unexpected Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected Operand", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Expected Operand", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
-            }
-            Ast.Expression right = parseMultiplicativeExpression();
-            result = new Ast.Expression.Binary(operator, result, right); // Form a binary expression
+    private Operator peekOperator() {
+        if (!tokens.has(0)) {
+            return null;
         }
-        return result;
+        Token.Kind kind = tokens.getKind(0);
+        return kind == Token.Kind.OPERATOR ? OPERATORS.get(tokens.get(0).getLiteral()) : OPERATOR_KINDS[kind.ordinal()];
     }
+
     /**
-     * Parses the {@code multiplicative-expression} rule.
+     * Throws unless the next token can start the operand of a binary operator.
      */
-    public Ast.Expression parseMultiplicativeExpression() throws ParseException {
-        Ast.Expression result = parsePrimaryExpression(); // Start with the lowest level of expressions
-        while (peek("*") || peek("/") || peek("^")) {
-            String operator = tokens.get(0).getLiteral();
-            tokens.advance(); // Move past the operator
-            if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")){
+    private void requireOperand() throws ParseException {
+        if(peek(RESERVED)){
 
-                if(tokens.has(0)){
-                    throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Unexpected Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+            if(tokens.has(0)){
+                throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
             }
-            if(!peek("NIL")&&!peek("TRUE")&&!peek("FALSE")&&!peek(Token.Type.INTEGER)&&!peek(Token.Type.DECIMAL)&&!peek(Token.Type.CHARACTER)&&!peek(Token.Type.STRING)&&!peek("(")&&!peek(Token.Type.IDENTIFIER)){
-                if(tokens.has(0)){
-                    throw new ParseException("Expected Operand", tokens.get(0).getIndex());
-                }
-                else  throw new ParseException("Expected Operand", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+            else  throw new ParseException("Unexpected Keyword", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
+        }
+        if(!peekExpression()){
+            if(tokens.has(0)){
+                throw new ParseException("Expected Operand", tokens.get(0).getIndex());
             }
-            Ast.Expression right = parsePrimaryExpression();
-            result = new Ast.Expression.Binary(operator, result, right); // Form a binary expression
+            else  throw new ParseException("Expected Operand", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
         }
-        return result;
     }
 
     /**
@@ -949,21 +1304,21 @@ else{
         if (peek(Token.Type.INTEGER)) {
             String value = tokens.get(0).getLiteral();
             match(Token.Type.INTEGER);
-            return new Ast.Expression.Literal(new BigInteger(value));
+            return new Ast.Expression.Literal(constants.intern(Token.Type.INTEGER, value));
         } else if (peek(Token.Type.DECIMAL)) {
             String value = tokens.get(0).getLiteral();
             match(Token.Type.DECIMAL);
-            return new Ast.Expression.Literal(new BigDecimal(value));
+            return new Ast.Expression.Literal(constants.intern(Token.Type.DECIMAL, value));
         } else if (peek(Token.Type.CHARACTER)) {
             String value = tokens.get(0).getLiteral();
             match(Token.Type.CHARACTER);
-            return new Ast.Expression.Literal(processCharLiteral(value));
+            return new Ast.Expression.Literal(constants.intern(Token.Type.CHARACTER, value));
         } else if (peek(Token.Type.STRING)) {
             String value = tokens.get(0).getLiteral();
             match(Token.Type.STRING);
-            return new Ast.Expression.Literal(processStringLiteral(value));
+            return new Ast.Expression.Literal(constants.intern(Token.Type.STRING, value));
         } else if (peek(Token.Type.IDENTIFIER)) {
-            if(peek("LIST")||peek("VAR")||peek("VAL")||peek("FUN")||peek("LET")||peek("SWITCH")||peek("CASE")||peek("DEFAULT")||peek("END")||peek("IF")||peek("DO")||peek("ELSE")||peek("WHILE")||peek("RETURN")){
+            if(peek(RESERVED)){
 
                 if(tokens.has(0)){
                     throw new ParseException("Unexpected Keyword", tokens.get(0).getIndex());
@@ -972,31 +1327,31 @@ else{
             }
             String name = tokens.get(0).getLiteral();
 
-            if (peek("TRUE")) {
-                match("TRUE");
+            if (peek(Token.Kind.TRUE)) {
+                match(Token.Kind.TRUE);
                 return new Ast.Expression.Literal(true);
-            } else if(peek("FALSE")) {
-            match("FALSE");
+            } else if(peek(Token.Kind.FALSE)) {
+            match(Token.Kind.FALSE);
                 return new Ast.Expression.Literal(false);}
-             else if (peek("NIL")) {
-                match("NIL");
+             else if (peek(Token.Kind.NIL)) {
+                match(Token.Kind.NIL);
                 return new Ast.Expression.Literal(null);}
 
             match(Token.Type.IDENTIFIER);
-            if (peek("(")) {
-                match("(");
+            if (peek(Token.Kind.LEFT_PAREN)) {
+                match(Token.Kind.LEFT_PAREN);
                 List<Ast.Expression> arguments = new ArrayList<>();
-                while (!peek(")")) {
+                while (!peek(Token.Kind.RIGHT_PAREN)) {
                     arguments.add(parseExpression());
-                    if (peek(",")) {
-                        match(",");
-                        if(peek(")")){
+                    if (peek(Token.Kind.COMMA)) {
+                        match(Token.Kind.COMMA);
+                        if(peek(Token.Kind.RIGHT_PAREN)){
                             throw new ParseException("Trailing Comma In Function Call", tokens.get(0).getIndex());
                         }
                     }
                 }
-                if(peek(")")){
-                match(")");
+                if(peek(Token.Kind.RIGHT_PAREN)){
+                match(Token.Kind.RIGHT_PAREN);
                 return new Ast.Expression.Function(name, arguments);} //parse exception missing )}
                      else{
                     if(tokens.has(0)){
@@ -1005,20 +1360,19 @@ else{
                     else  throw new ParseException("Expected )", tokens.get(-1).getIndex()+tokens.get(-1).getLiteral().length());
                          }
 
-            }else if (peek("[")) {
-                    match("[");
+            }else if (peek(Token.Kind.LEFT_BRACKET)) {
+                    match(Token.Kind.LEFT_BRACKET);
                     Ast.Expression value = parseExpression();
-                    match("]");
+                    match(Token.Kind.RIGHT_BRACKET);
                     return new Ast.Expression.Access(Optional.of(value), name);
                 }
             else {
-               // System.out.println("somehow?");
                 return new Ast.Expression.Access(Optional.empty(), name);
             }
-        } else if (peek("(")) {
-            match("(");
+        } else if (peek(Token.Kind.LEFT_PAREN)) {
+            match(Token.Kind.LEFT_PAREN);
             Ast.Expression expression = parseExpression();
-            if (!peek(")")) {
+            if (!peek(Token.Kind.RIGHT_PAREN)) {
                 if(tokens.has(0)){
                     throw new ParseException("Expected )", tokens.get(0).getIndex());
                 }
@@ -1034,38 +1388,300 @@ else{
         }
     }
 
-    private char processCharLiteral(String literal) {
-        // Assuming the character is properly escaped and surrounded by single quotes
-        if (literal.length() == 3) {
-            return literal.charAt(1); // Direct character
-        } else if (literal.length() == 4 && literal.charAt(1) == '\\') {
-            // Handle simple escape sequences
-            switch (literal.charAt(2)) {
-                case 'n': return '\n';
-                case 't': return '\t';
-                case '\\': return '\\';
-                case '\'': return '\'';
-                case 'r': return '\r';
-                case 'b': return '\b';
-                case '\"': return '\"';
-                // Add more cases as necessary
+    /**
+     * Parses the {@code block} rule like {@link #parseBlock()}, keeping the
+     * enclosing {@code IF}, {@code WHILE} and {@code SWITCH} statements on a
+     * stack instead of parsing their blocks by recursion. Other statements
+     * are parsed by {@link #parseStatement()}.
+     */
+    private List<Ast.Statement> parseBlockIteratively() throws ParseException {
+        List<BlockFrame> blocks = new ArrayList<>();
+        List<Ast.Statement> statements = new ArrayList<>();
+        while (true) {
+            Ast.Statement statement;
+            if (peekStatement()) {
+                Token.Kind kind = tokens.getKind(0);
+                if (kind == Token.Kind.IF || kind == Token.Kind.WHILE) {
+                    tokens.advance();
+                    if (!peekExpression()) {
+                        if (kind == Token.Kind.IF) {
+                            throw new ParseException("Expected Expression After IF.", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                        }
+                        throw error("Expected Expression After While");
+                    }
+                    Ast.Expression condition = parseExpression();
+                    if (!match(Token.Kind.DO)) {
+                        throw error("Expected DO");
+                    }
+                    if (!peekExpression()) {
+                        throw error("Expected Block");
+                    }
+                    blocks.add(new BlockFrame(kind, condition, statements));
+                    statements = new ArrayList<>();
+                    continue;
+                } else if (kind == Token.Kind.SWITCH) {
+                    tokens.advance();
+                    if (!peekExpression()) {
+                        throw error("Expected Expression After SWITCH");
+                    }
+                    BlockFrame block = new BlockFrame(Token.Kind.SWITCH, parseExpression(), statements);
+                    blocks.add(block);
+                    parseCase(block);
+                    statements = new ArrayList<>();
+                    continue;
+                }
+                statement = parseStatement();
+            } else if (blocks.isEmpty()) {
+                return statements;
+            } else {
+                BlockFrame block = blocks.get(blocks.size() - 1);
+                if (block.kind == Token.Kind.IF && block.thenStatements == null) {
+                    block.thenStatements = statements;
+                    if (match(Token.Kind.ELSE)) {
+                        if (!peekExpression()) {
+                            throw new ParseException("Unexpected IF Error", tokens.get(0).getIndex());
+                        }
+                        statements = new ArrayList<>();
+                        continue;
+                    }
+                    statements = new ArrayList<>();
+                } else if (block.kind == Token.Kind.SWITCH) {
+                    block.cases.add(new Ast.Statement.Case(block.value, statements));
+                    if (block.value.isPresent()) {
+                        parseCase(block);
+                        statements = new ArrayList<>();
+                        continue;
+                    }
+                }
+                if (!match(Token.Kind.END)) {
+                    throw error("Expected END");
+                }
+                switch (block.kind) {
+                    case IF:
+                        statement = new Ast.Statement.If(block.condition, block.thenStatements, statements);
+                        break;
+                    case WHILE:
+                        statement = new Ast.Statement.While(block.condition, statements);
+                        break;
+                    default:
+                        statement = new Ast.Statement.Switch(block.condition, block.cases);
+                        break;
+                }
+                blocks.remove(blocks.size() - 1);
+                statements = block.statements;
+            }
+            statements.add(statement);
+            if (tokens.has(0)) {
+                switch (tokens.getKind(0)) {
+                    case LIST:
+                        throw error("Unexpected LIST");
+                    case VAR:
+                        throw error("Unexpected VAR");
+                    case VAL:
+                        throw error("Unexpected VAL");
+                    case FUN:
+                        throw error("Unexpected FUN Keyword");
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the start of the next case or default of a switch statement, up
+     * to the block of statements.
+     */
+    private void parseCase(BlockFrame block) throws ParseException {
+        if (match(Token.Kind.CASE)) {
+            if (!peekExpression()) {
+                throw error("Expected Expression After Case");
+            }
+            Ast.Expression value = parseExpression();
+            if (!match(Token.Kind.COLON)) {
+                throw error("Expected :");
+            }
+            block.value = Optional.of(value);
+        } else if (match(Token.Kind.DEFAULT)) {
+            block.value = Optional.empty();
+        } else {
+            throw error("Expected DEFAULT Case");
+        }
+    }
+
+    /**
+     * Parses the {@code expression} rule like {@link #parseExpression()}
+     * with a stack of {@link ExpressionFrame}s in place of recursion. Each
+     * frame is a binary expression being climbed as in {@link
+     * #parseBinaryExpression(Ast.Expression, int)}, or a call, index or group
+     * waiting for the expression it contains.
+     */
+    private Ast.Expression parseExpressionIteratively() throws ParseException {
+        int base = depth;
+        try {
+            push(ExpressionFrame.Kind.EXPRESSION);
+            boolean expression = true;
+            while (true) {
+                if (expression && peek(RESERVED)) {
+                    throw error("Unexpected Keyword");
+                }
+                Ast.Expression value = parseOperand();
+                expression = value == null;
+                // Returns the value to the frames until one needs another operand.
+                while (value != null) {
+                    ExpressionFrame frame = frames[depth - 1];
+                    switch (frame.kind) {
+                        case EXPRESSION:
+                            frame.kind = ExpressionFrame.Kind.BINARY;
+                            frame.left = value;
+                            frame.precedence = LOGICAL;
+                            value = climb();
+                            break;
+                        case BINARY:
+                            frame.right = value;
+                            value = climb();
+                            break;
+                        case CALL:
+                            frame.arguments.add(value);
+                            if (peek(Token.Kind.COMMA)) {
+                                match(Token.Kind.COMMA);
+                                if (peek(Token.Kind.RIGHT_PAREN)) {
+                                    throw new ParseException("Trailing Comma In Function Call", tokens.get(0).getIndex());
+                                }
+                            }
+                            if (!peek(Token.Kind.RIGHT_PAREN)) {
+                                push(ExpressionFrame.Kind.EXPRESSION);
+                                expression = true;
+                                value = null;
+                                break;
+                            }
+                            match(Token.Kind.RIGHT_PAREN);
+                            value = new Ast.Expression.Function(frame.literal, frame.arguments);
+                            pop();
+                            break;
+                        case INDEX:
+                            match(Token.Kind.RIGHT_BRACKET);
+                            value = new Ast.Expression.Access(Optional.of(value), frame.literal);
+                            pop();
+                            break;
+                        case GROUP:
+                            if (!peek(Token.Kind.RIGHT_PAREN)) {
+                                throw error("Expected )");
+                            }
+                            value = new Ast.Expression.Group(value);
+                            pop();
+                            break;
+                    }
+                    if (value != null && depth == base) {
+                        return value;
+                    }
+                }
             }
+        } finally {
+            for (; depth > base; depth--) {
+                frames[depth - 1].clear();
+            }
+        }
+    }
+
+    /**
+     * Parses a primary expression, or the start of a call, index or group
+     * up to the expression it contains, pushing a frame for it along with
+     * one for that expression and returning null.
+     */
+    private Ast.Expression parseOperand() throws ParseException {
+        if (peek(Token.Kind.IDENTIFIER) && tokens.has(1) && tokens.getType(1) == Token.Type.OPERATOR) {
+            if (tokens.literalEquals(1, "(")) {
+                String name = tokens.get(0).getLiteral();
+                tokens.advance();
+                tokens.advance();
+                if (match(Token.Kind.RIGHT_PAREN)) {
+                    return new Ast.Expression.Function(name, new ArrayList<>());
+                }
+                ExpressionFrame frame = push(ExpressionFrame.Kind.CALL);
+                frame.literal = name;
+                frame.arguments = new ArrayList<>();
+            } else if (tokens.literalEquals(1, "[")) {
+                String name = tokens.get(0).getLiteral();
+                tokens.advance();
+                tokens.advance();
+                push(ExpressionFrame.Kind.INDEX).literal = name;
+            } else {
+                return parsePrimaryExpression();
+            }
+        } else if (match(Token.Kind.LEFT_PAREN)) {
+            push(ExpressionFrame.Kind.GROUP);
+        } else {
+            return parsePrimaryExpression();
+        }
+        push(ExpressionFrame.Kind.EXPRESSION);
+        return null;
+    }
+
+    /**
+     * Continues the binary expression of the top frame as in {@link
+     * #parseBinaryExpression(Ast.Expression, int)}, returning the expression
+     * once complete or null after taking an operator that needs an operand.
+     */
+    private Ast.Expression climb() throws ParseException {
+        ExpressionFrame frame = frames[depth - 1];
+        while (true) {
+            if (frame.right != null) {
+                Operator next = peekOperator();
+                if (next != null && next.binds(frame.operator)) {
+                    int precedence = next.precedence > frame.operator.precedence ? frame.operator.precedence + 1 : frame.operator.precedence;
+                    Ast.Expression left = frame.right;
+                    frame.right = null;
+                    frame = push(ExpressionFrame.Kind.BINARY);
+                    frame.left = left;
+                    frame.precedence = precedence;
+                    continue;
+                }
+                frame.left = new Ast.Expression.Binary(frame.literal, frame.left, frame.right);
+                frame.right = null;
+            }
+            Operator operator = peekOperator();
+            if (operator == null || operator.precedence < frame.precedence) {
+                Ast.Expression left = frame.left;
+                pop();
+                return left;
+            }
+            frame.literal = operator.literal;
+            frame.operator = operator;
+            tokens.advance();
+            requireOperand();
+            return null;
+        }
+    }
+
+    private ExpressionFrame push(ExpressionFrame.Kind kind) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
         }
-        throw new IllegalArgumentException("Invalid character literal: " + literal);
+        ExpressionFrame frame = frames[depth];
+        if (frame == null) {
+            frame = frames[depth] = new ExpressionFrame();
+        }
+        depth++;
+        frame.kind = kind;
+        return frame;
     }
 
-    private String processStringLiteral(String literal) {
-        // Remove surrounding double quotes and replace escape sequences
-        String unquoted = literal.substring(1, literal.length() - 1);
-        return unquoted.replace("\\n", "\n")
-                .replace("\\t", "\t")
-                .replace("\\\"", "\"")
-                .replace("\\\\", "\\")
-                .replace("\\b", "\b")
-                .replace("\\r", "\r")
-                .replace("\\\'", "\'");
-        // Add more replacements as necessary for other escape sequences
+    private void pop() {
+        frames[--depth].clear();
     }
+
+    /**
+     * Returns an exception at the next token, or just past the previous one
+     * at the end of the input.
+     */
+    private ParseException error(String message) {
+        if (tokens.has(0)) {
+            return new ParseException(message, tokens.get(0).getIndex());
+        }
+        return new ParseException(message, tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+    }
+
     /**
      * As in the lexer, returns {@code true} if the current sequence of tokens
      * matches the given patterns. Unlike the lexer, the pattern is not a regex;
@@ -1075,17 +1691,25 @@ else{
      *
      * In other words, {@code Token(IDENTIFIER, "literal")} is matched by both
      * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}.
+     *
+     * A pattern may also be a {@link Token.Kind}, which matches keywords and
+     * operators without comparing literals. Single patterns are matched by
+     * the overloads below, which avoid the array and type tests.
      */
     private boolean peek(Object... patterns) {
         for(int i=0; i<patterns.length;i++){
            if(!tokens.has(i)) {
                return false;
+           } else if (patterns[i] instanceof Token.Kind){
+               if (patterns[i]!=tokens.getKind(i)) {
+                   return false;
+               }
            } else if (patterns[i] instanceof Token.Type){
-               if (patterns[i]!=tokens.get(i).getType()) {
+               if (patterns[i]!=tokens.getType(i)) {
                    return false;
                }
            }else if (patterns[i] instanceof String){
-               if(!patterns[i].equals(tokens.get(i).getLiteral())){
+               if(!tokens.literalEquals(i, (String) patterns[i])){
                    return false;
                }
            }else {
@@ -1097,6 +1721,64 @@ else{
     }
 
 
+    /**
+     * Returns true if the next token is of the given kind.
+     */
+    private boolean peek(Token.Kind kind) {
+        return tokens.has(0) && tokens.getKind(0) == kind;
+    }
+
+    /**
+     * Returns true if the next token is of the given type.
+     */
+    private boolean peek(Token.Type type) {
+        return tokens.has(0) && tokens.getType(0) == type;
+    }
+
+    /**
+     * Returns true if the next token is of any of the given kinds.
+     */
+    private boolean peek(Set<Token.Kind> kinds) {
+        return tokens.has(0) && kinds.contains(tokens.getKind(0));
+    }
+
+    /**
+     * Returns true if the next token can start an expression: a literal, an
+     * identifier (including keywords, which are rejected later) or a group.
+     */
+    private boolean peekExpression() {
+        if (!tokens.has(0)) {
+            return false;
+        }
+        Token.Kind kind = tokens.getKind(0);
+        return kind.getType() != Token.Type.OPERATOR || kind == Token.Kind.LEFT_PAREN;
+    }
+
+    /**
+     * Returns true if the next token can start a statement of a block, that
+     * is an expression other than a keyword ending the block.
+     */
+    private boolean peekStatement() {
+        if (!tokens.has(0)) {
+            return false;
+        }
+        switch (tokens.getKind(0)) {
+            case END:
+            case ELSE:
+            case CASE:
+            case DEFAULT:
+            case DO:
+            case LIST:
+            case VAR:
+            case VAL:
+                return false;
+            case LEFT_PAREN:
+                return true;
+            default:
+                return tokens.getType(0) != Token.Type.OPERATOR;
+        }
+    }
+
     /**
      * As in the lexer, returns {@code true} if {@link #peek(Object...)} is true
      * and advances the token stream.
@@ -1113,19 +1795,168 @@ else{
         return peek;
     }
 
+    /**
+     * Advances past the next token if it is of the given kind.
+     */
+    private boolean match(Token.Kind kind) {
+        if (peek(kind)) {
+            tokens.advance();
+            return true;
+        }
+        return false;
+    }
+
+    private static void register(int precedence, boolean rightAssociative, String... literals) {
+        for (String literal : literals) {
+            Operator operator = new Operator(literal, precedence, rightAssociative);
+            OPERATORS.put(literal, operator);
+            Token.Kind kind = Token.Kind.of(Token.Type.OPERATOR, literal, 0, literal.length());
+            if (kind != Token.Kind.OPERATOR) {
+                OPERATOR_KINDS[kind.ordinal()] = operator;
+            }
+        }
+    }
+
+    private static final class Operator {
+
+        private final String literal;
+        private final int precedence;
+        private final boolean rightAssociative;
+
+        private Operator(String literal, int precedence, boolean rightAssociative) {
+            this.literal = literal;
+            this.precedence = precedence;
+            this.rightAssociative = rightAssociative;
+        }
+
+        /**
+         * Returns true if this operator, following the right operand of
+         * {@code previous}, takes that operand as its left operand.
+         */
+        private boolean binds(Operator previous) {
+            return precedence > previous.precedence || precedence == previous.precedence && rightAssociative;
+        }
+
+    }
+
+    /**
+     * An expression being parsed by {@link #parseExpressionIteratively()}.
+     * Frames are reused by the parser, and cleared when popped.
+     */
+    private static final class ExpressionFrame {
+
+        private enum Kind {
+            /**
+             * An expression waiting for its first operand.
+             */
+            EXPRESSION,
+            /**
+             * A binary expression with its {@code left} operand, waiting for
+             * the {@code right} operand of its {@code operator} if any.
+             */
+            BINARY,
+            /**
+             * A call to the function named {@code literal}, waiting for its
+             * next argument.
+             */
+            CALL,
+            /**
+             * An access to the list named {@code literal}, waiting for its
+             * offset.
+             */
+            INDEX,
+            GROUP
+        }
+
+        private Kind kind;
+        private Ast.Expression left;
+        private Ast.Expression right;
+        private String literal;
+        private Operator operator;
+        private int precedence;
+        private List<Ast.Expression> arguments;
+
+        private void clear() {
+            left = null;
+            right = null;
+            literal = null;
+            operator = null;
+            arguments = null;
+        }
+
+    }
+
+    /**
+     * A statement whose block is being parsed by {@link
+     * #parseBlockIteratively()}, holding the statements of the block it is in.
+     */
+    private static final class BlockFrame {
+
+        private final Token.Kind kind;
+        private final Ast.Expression condition;
+        private final List<Ast.Statement> statements;
+        private List<Ast.Statement> thenStatements;
+        private final List<Ast.Statement.Case> cases = new ArrayList<>();
+        private Optional<Ast.Expression> value;
+
+        private BlockFrame(Token.Kind kind, Ast.Expression condition, List<Ast.Statement> statements) {
+            this.kind = kind;
+            this.condition = condition;
+            this.statements = statements;
+        }
+
+    }
+
+    /**
+     * The tokens being parsed, read from a list, a {@link TokenBuffer} or an
+     * iterator. Tokens from an iterator are pulled into a ring buffer as they
+     * are peeked, which keeps the previous token for error offsets and grows
+     * only if the parser looks further ahead than it holds.
+     */
     private static final class TokenStream {
 
         private final List<Token> tokens;
+        private final TokenBuffer buffer;
+        private final Iterator<Token> source;
+        private Token[] ring;
+        private int end = 0;
         private int index = 0;
 
         private TokenStream(List<Token> tokens) {
             this.tokens = tokens;
+            this.buffer = tokens instanceof TokenBuffer ? (TokenBuffer) tokens : null;
+            this.source = null;
+        }
+
+        private TokenStream(TokenBuffer buffer) {
+            this.tokens = buffer;
+            this.buffer = buffer;
+            this.source = null;
+        }
+
+        private TokenStream(Iterator<Token> source) {
+            this.tokens = null;
+            this.buffer = null;
+            this.source = source;
+            this.ring = new Token[8];
+        }
+
+        /**
+         * Returns a stream over the same list starting at {@code index}.
+         */
+        private TokenStream at(int index) {
+            TokenStream stream = new TokenStream(tokens);
+            stream.index = index;
+            return stream;
         }
 
         /**
          * Returns true if there is a token at index + offset.
          */
         public boolean has(int offset) {
+            if (source != null) {
+                return fill(index + offset);
+            }
             return index + offset < tokens.size();
         }
 
@@ -1133,9 +1964,67 @@ else{
          * Gets the token at index + offset.
          */
         public Token get(int offset) {
+            if (source != null) {
+                int position = index + offset;
+                if (!fill(position) || position < Math.max(0, end - ring.length)) {
+                    throw new IndexOutOfBoundsException("Index " + position + " out of bounds for buffered tokens");
+                }
+                return ring[position & (ring.length - 1)];
+            }
             return tokens.get(index + offset);
         }
 
+        /**
+         * Gets the type of the token at index + offset.
+         */
+        public Token.Type getType(int offset) {
+            if (buffer != null) {
+                return buffer.getType(index + offset);
+            }
+            return get(offset).getType();
+        }
+
+        /**
+         * Gets the kind of the token at index + offset.
+         */
+        public Token.Kind getKind(int offset) {
+            if (buffer != null) {
+                return buffer.getKind(index + offset);
+            }
+            return get(offset).getKind();
+        }
+
+        /**
+         * Returns true if the literal of the token at index + offset is the
+         * given literal.
+         */
+        public boolean literalEquals(int offset, String literal) {
+            if (buffer != null) {
+                return buffer.literalEquals(index + offset, literal);
+            }
+            return literal.equals(get(offset).getLiteral());
+        }
+
+        /**
+         * Pulls tokens from the source until the one at {@code position} is
+         * buffered, returning false if the source ends first. The ring is
+         * grown instead of overwriting the token before the current one.
+         */
+        private boolean fill(int position) {
+            while (end <= position && source.hasNext()) {
+                if (end - ring.length >= index - 1) {
+                    Token[] grown = new Token[ring.length * 2];
+                    for (int i = Math.max(0, end - ring.length); i < end; i++) {
+                        grown[i & (grown.length - 1)] = ring[i & (ring.length - 1)];
+                    }
+                    ring = grown;
+                }
+                ring[end & (ring.length - 1)] = source.next();
+                end++;
+            }
+            return position < end;
+        }
+
         /**
          * Advances to the next token, incrementing the index.
          */
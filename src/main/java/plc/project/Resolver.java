@@ -0,0 +1,181 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the variables of a source to slots ahead of interpretation, run
+ * after the {@link Analyzer} or by the {@link Interpreter} itself, so reading
+ * or writing a variable indexes an array instead of looking up its name in
+ * each scope up the chain.
+ *
+ * Globals are numbered in order. Each function has a flat frame, with its
+ * parameters first and then a slot for every local declaration, which
+ * sibling blocks reuse. An access resolves to the innermost declaration
+ * before it, to a global defined before it runs, or otherwise stays
+ * unresolved and is looked up by name at runtime, as for variables of the
+ * scope given to the interpreter. This mirrors the interpreter's scopes:
+ * {@code IF}, {@code WHILE} and each case of a {@code SWITCH} are blocks,
+ * and since at most one case runs, its declarations are only visible to it.
+ *
+ * Slots are stored on the nodes, so as for types, an expression shared
+ * through an {@link ExpressionFactory} cannot be resolved: the first shared
+ * access visited throws an {@link IllegalStateException}.
+ */
+public final class Resolver implements Ast.Visitor<Void> {
+
+    private final Map<String, Integer> globals = new HashMap<>();
+
+    /**
+     * The declarations of each enclosing block of the current function,
+     * innermost last, with the parameters first.
+     */
+    private final List<Map<String, Integer>> blocks = new ArrayList<>();
+    private int next = 0;
+    private int frameSize = 0;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        ast.getGlobals().forEach(this::visit);
+        ast.getFunctions().forEach(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        // The value is evaluated before the global is defined.
+        ast.getValue().ifPresent(this::visit);
+        ast.setSlot(globals.size());
+        globals.put(ast.getName(), globals.size());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        Map<String, Integer> parameters = new HashMap<>();
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            parameters.putIfAbsent(ast.getParameters().get(i), i);
+        }
+        blocks.add(parameters);
+        next = ast.getParameters().size();
+        frameSize = next;
+        ast.getStatements().forEach(this::visit);
+        blocks.clear();
+        ast.setFrameSize(frameSize);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        // The value is evaluated before the variable is defined.
+        ast.getValue().ifPresent(this::visit);
+        Map<String, Integer> block = blocks.get(blocks.size() - 1);
+        if (block.containsKey(ast.getName())) {
+            ast.setSlot(-1);
+        } else {
+            block.put(ast.getName(), next);
+            ast.setSlot(next++);
+            frameSize = Math.max(frameSize, next);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        visit(ast.getReceiver());
+        return visit(ast.getValue());
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getThenStatements());
+        return visitBlock(ast.getElseStatements());
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        visit(ast.getCondition());
+        ast.getCases().forEach(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        ast.getValue().ifPresent(this::visit);
+        return visitBlock(ast.getStatements());
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        visit(ast.getCondition());
+        return visitBlock(ast.getStatements());
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        return visit(ast.getValue());
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        visit(ast.getLeft());
+        return visit(ast.getRight());
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        ast.getOffset().ifPresent(this::visit);
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Integer slot = blocks.get(i).get(ast.getName());
+            if (slot != null) {
+                ast.setSlot(slot);
+                ast.setGlobal(false);
+                return null;
+            }
+        }
+        Integer slot = globals.get(ast.getName());
+        ast.setSlot(slot != null ? slot : -1);
+        ast.setGlobal(slot != null);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        ast.getArguments().forEach(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        ast.getValues().forEach(this::visit);
+        return null;
+    }
+
+    private Void visitBlock(List<Ast.Statement> statements) {
+        int start = next;
+        blocks.add(new HashMap<>());
+        statements.forEach(this::visit);
+        blocks.remove(blocks.size() - 1);
+        next = start;
+        return null;
+    }
+
+}
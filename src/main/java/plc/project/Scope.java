@@ -72,6 +72,22 @@ public final class Scope {
         }
     }
 
+    /**
+     * Removes a variable defined in this scope, used by {@link
+     * IncrementalAnalyzer} to redefine a global.
+     */
+    void undefineVariable(String name) {
+        variables.remove(name);
+    }
+
+    /**
+     * Removes a function defined in this scope, used by {@link
+     * IncrementalAnalyzer} to redefine a function.
+     */
+    void undefineFunction(String name, int arity) {
+        functions.remove(name + "/" + arity);
+    }
+
     @Override
     public String toString() {
         return "Scope{" +
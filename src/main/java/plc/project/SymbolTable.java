@@ -0,0 +1,122 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier literals for a single compilation. Each distinct
+ * identifier is stored once and given a dense integer id, so equal identifiers
+ * are the same {@link String} instance and can be compared by identity (which
+ * {@link String#equals(Object)} and the {@link java.util.HashMap}s in {@link
+ * Scope} check first) or by id.
+ *
+ * Lookups hash the characters in place, so interning an identifier that has
+ * already been seen does not allocate.
+ */
+public final class SymbolTable {
+
+    private String[] symbols = new String[64];
+    private int[] table = new int[128];
+    private int size = 0;
+
+    /**
+     * Returns the canonical instance of the {@code length} characters of
+     * {@code source} starting at {@code start}.
+     */
+    public String intern(CharSequence source, int start, int length) {
+        int id = id(source, start, length);
+        return symbols[id];
+    }
+
+    public String intern(String symbol) {
+        return intern(symbol, 0, symbol.length());
+    }
+
+    /**
+     * Returns the id of the given characters, adding them to the table if they
+     * have not been seen before.
+     */
+    public int id(CharSequence source, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.charAt(start + i);
+        }
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return add(source.subSequence(start, start + length).toString(), slot);
+            }
+            String symbol = symbols[entry - 1];
+            if (symbol.hashCode() == hash && matches(symbol, source, start, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the given symbol, or -1 if it has not been interned.
+     */
+    public int lookup(String symbol) {
+        int mask = table.length - 1;
+        for (int slot = mix(symbol.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            } else if (symbols[entry - 1].equals(symbol)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public String getSymbol(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Index " + id + " out of bounds for length " + size);
+        }
+        return symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(String symbol, int slot) {
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        symbols[size] = symbol;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(symbols[id].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String symbol, CharSequence source, int start, int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -1,5 +1,7 @@
 package plc.project;
 
+import java.util.Arrays;
+
 public final class Token {
 
     public enum Type {
@@ -11,21 +13,217 @@ public final class Token {
         OPERATOR
     }
 
+    /**
+     * The {@link Type} of a token refined by keyword and operator, so the
+     * parser can select rules by comparing kinds instead of literals. Keywords
+     * are always {@link Type#IDENTIFIER} tokens, and the operators the grammar
+     * uses have a kind of their own while any other is {@link #OPERATOR}.
+     */
+    public enum Kind {
+        IDENTIFIER(Type.IDENTIFIER),
+        INTEGER(Type.INTEGER),
+        DECIMAL(Type.DECIMAL),
+        CHARACTER(Type.CHARACTER),
+        STRING(Type.STRING),
+        OPERATOR(Type.OPERATOR),
+        LIST(Type.IDENTIFIER),
+        VAR(Type.IDENTIFIER),
+        VAL(Type.IDENTIFIER),
+        FUN(Type.IDENTIFIER),
+        LET(Type.IDENTIFIER),
+        SWITCH(Type.IDENTIFIER),
+        CASE(Type.IDENTIFIER),
+        DEFAULT(Type.IDENTIFIER),
+        END(Type.IDENTIFIER),
+        IF(Type.IDENTIFIER),
+        DO(Type.IDENTIFIER),
+        ELSE(Type.IDENTIFIER),
+        WHILE(Type.IDENTIFIER),
+        RETURN(Type.IDENTIFIER),
+        NIL(Type.IDENTIFIER),
+        TRUE(Type.IDENTIFIER),
+        FALSE(Type.IDENTIFIER),
+        LEFT_PAREN("("),
+        RIGHT_PAREN(")"),
+        LEFT_BRACKET("["),
+        RIGHT_BRACKET("]"),
+        COMMA(","),
+        COLON(":"),
+        SEMICOLON(";"),
+        EQUALS("="),
+        PLUS("+"),
+        MINUS("-"),
+        STAR("*"),
+        SLASH("/"),
+        CARET("^"),
+        LESS("<"),
+        GREATER(">"),
+        EQUAL_EQUAL("=="),
+        NOT_EQUAL("!=");
+
+        private static final Kind[] TYPES = {IDENTIFIER, INTEGER, DECIMAL, CHARACTER, STRING, OPERATOR};
+
+        /**
+         * Keywords indexed by their first letter.
+         */
+        private static final Kind[][] KEYWORDS = new Kind[26][0];
+
+        /**
+         * Single character operators indexed by character.
+         */
+        private static final Kind[] SYMBOLS = new Kind[128];
+
+        static {
+            for (Kind kind : values()) {
+                if (kind.literal != null && kind.literal.length() == 1) {
+                    SYMBOLS[kind.literal.charAt(0)] = kind;
+                }
+                if (kind.isKeyword()) {
+                    Kind[] keywords = KEYWORDS[kind.name().charAt(0) - 'A'];
+                    keywords = Arrays.copyOf(keywords, keywords.length + 1);
+                    keywords[keywords.length - 1] = kind;
+                    KEYWORDS[kind.name().charAt(0) - 'A'] = keywords;
+                }
+            }
+        }
+
+        private final Type type;
+        private final String literal;
+
+        Kind(Type type) {
+            this.type = type;
+            this.literal = null;
+        }
+
+        Kind(String literal) {
+            this.type = Type.OPERATOR;
+            this.literal = literal;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the literal of an operator kind, or null for any other kind
+         * including {@link #OPERATOR}.
+         */
+        public String getLiteral() {
+            return literal;
+        }
+
+        public boolean isKeyword() {
+            return ordinal() >= LIST.ordinal() && ordinal() <= FALSE.ordinal();
+        }
+
+        /**
+         * Classifies the token of the given type spanning {@code length}
+         * characters of {@code source} from {@code start}.
+         */
+        public static Kind of(Type type, CharSequence source, int start, int length) {
+            if (type == Type.OPERATOR) {
+                return operator(source, start, length);
+            }
+            if (type != Type.IDENTIFIER) {
+                return TYPES[type.ordinal()];
+            }
+            if (length < 2) {
+                return IDENTIFIER;
+            }
+            char first = source.charAt(start);
+            if (first < 'A' || first > 'Z') {
+                return IDENTIFIER;
+            }
+            for (Kind keyword : KEYWORDS[first - 'A']) {
+                String name = keyword.name();
+                if (name.length() == length && matches(name, source, start)) {
+                    return keyword;
+                }
+            }
+            return IDENTIFIER;
+        }
+
+        private static Kind operator(CharSequence source, int start, int length) {
+            if (length == 1) {
+                char first = source.charAt(start);
+                Kind kind = first < SYMBOLS.length ? SYMBOLS[first] : null;
+                return kind != null ? kind : OPERATOR;
+            }
+            if (length == 2 && source.charAt(start + 1) == '=') {
+                // The only compound operators the lexer produces.
+                if (source.charAt(start) == '=') {
+                    return EQUAL_EQUAL;
+                } else if (source.charAt(start) == '!') {
+                    return NOT_EQUAL;
+                }
+            }
+            return OPERATOR;
+        }
+
+        private static boolean matches(String name, CharSequence source, int start) {
+            for (int i = 1; i < name.length(); i++) {
+                if (source.charAt(start + i) != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
     private final Type type;
-    private final String literal;
+    private final Kind kind;
     private final int index;
+    private final int length;
+    private final CharSequence source;
+    private String literal;
 
     public Token(Type type, String literal, int index) {
         this.type = type;
+        this.kind = Kind.of(type, literal, 0, literal.length());
         this.literal = literal;
         this.index = index;
+        this.length = literal.length();
+        this.source = null;
+    }
+
+    /**
+     * Creates a token whose literal is the {@code length} characters of
+     * {@code source} starting at {@code index}. The literal is only decoded
+     * into a {@link String} the first time {@link #getLiteral()} is called.
+     */
+    Token(Kind kind, CharSequence source, int index, int length) {
+        this.type = kind.getType();
+        this.kind = kind;
+        this.source = source;
+        this.index = index;
+        this.length = length;
+    }
+
+    /**
+     * Returns this token moved by {@code delta} characters in {@code source},
+     * where its literal now starts. A literal already decoded is kept.
+     */
+    Token shift(int delta, CharSequence source) {
+        Token token = new Token(kind, source, index + delta, length);
+        token.literal = literal;
+        return token;
     }
 
     public Type getType() {
         return type;
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
     public String getLiteral() {
+        String literal = this.literal;
+        if (literal == null) {
+            literal = source.subSequence(index, index + length).toString();
+            this.literal = literal;
+        }
         return literal;
     }
 
@@ -33,17 +231,25 @@ public final class Token {
         return index;
     }
 
+    /**
+     * Returns the length of the literal without decoding it.
+     */
+    public int getLength() {
+        return length;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Token
                 && type == ((Token) obj).type
-                && literal.equals(((Token) obj).literal)
-                && index == ((Token) obj).index;
+                && index == ((Token) obj).index
+                && length == ((Token) obj).length
+                && getLiteral().equals(((Token) obj).getLiteral());
     }
 
     @Override
     public String toString() {
-        return type + "=" + literal + "@" + index;
+        return type + "=" + getLiteral() + "@" + index;
     }
 
 }
@@ -0,0 +1,136 @@
+package plc.project;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A compact list of tokens over a shared source. Instead of one {@link Token}
+ * and literal {@link String} per token, the kind, start index and length of
+ * each token are stored in parallel arrays, which costs 9 bytes per token.
+ * Identifier literals are interned through the buffer's {@link SymbolTable}
+ * when decoded.
+ *
+ * {@link #get(int)} returns a {@link Token} view whose literal is only decoded
+ * when requested, so the buffer can be used anywhere a {@code List<Token>} is
+ * expected. The {@link Parser} reads the arrays directly through {@link
+ * Parser#Parser(TokenBuffer)}.
+ */
+public final class TokenBuffer extends AbstractList<Token> implements RandomAccess {
+
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private CharSequence source;
+    private SymbolTable symbols;
+    private byte[] kinds = new byte[16];
+    private int[] starts = new int[16];
+    private int[] lengths = new int[16];
+    private int size = 0;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, new SymbolTable());
+    }
+
+    public TokenBuffer(CharSequence source, SymbolTable symbols) {
+        this.source = source;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Empties the buffer and points it at a new source, keeping the arrays it
+     * has grown so that it can be reused without allocating.
+     */
+    public void reset(CharSequence source, SymbolTable symbols) {
+        this.source = source;
+        this.symbols = symbols;
+        this.size = 0;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Appends a token of the given type spanning {@code length} characters of
+     * the source starting at {@code start}.
+     */
+    public void add(Token.Type type, int start, int length) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        kinds[size] = (byte) Token.Kind.of(type, source, start, length).ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public Token.Type getType(int index) {
+        return KINDS[kinds[checkIndex(index)]].getType();
+    }
+
+    public Token.Kind getKind(int index) {
+        return KINDS[kinds[checkIndex(index)]];
+    }
+
+    public int getIndex(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public int getLength(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    public String getLiteral(int index) {
+        if (getType(index) == Token.Type.IDENTIFIER) {
+            return symbols.intern(source, starts[index], lengths[index]);
+        }
+        return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+    }
+
+    /**
+     * Returns true if the literal of the token at {@code index} equals {@code
+     * literal}, comparing against the source without decoding the literal.
+     */
+    public boolean literalEquals(int index, String literal) {
+        checkIndex(index);
+        if (lengths[index] != literal.length()) {
+            return false;
+        }
+        int start = starts[index];
+        for (int i = 0; i < literal.length(); i++) {
+            if (source.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Token get(int index) {
+        Token.Kind kind = getKind(index);
+        if (kind.getType() == Token.Type.IDENTIFIER) {
+            return new Token(Token.Type.IDENTIFIER, getLiteral(index), starts[index]);
+        }
+        return new Token(kind, source, starts[index], lengths[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return index;
+    }
+
+}
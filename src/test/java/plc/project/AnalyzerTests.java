@@ -10,7 +10,9 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -21,6 +23,11 @@ import java.util.stream.Stream;
  */
 public final class AnalyzerTests {
 
+    /**
+     * Checks bodies concurrently even on a single core.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
     @ParameterizedTest(name = "{0}")
     @MethodSource
     public void testSource(String test, Ast.Source ast, Ast.Source expected) {
@@ -61,6 +68,78 @@ public final class AnalyzerTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testSourceParallel(String test, Supplier<Ast.Source> source) {
+        Ast.Source serial = source.get();
+        Ast.Source parallel = source.get();
+        Analyzer serialAnalyzer = new Analyzer(new Scope(null));
+        Analyzer parallelAnalyzer = new Analyzer(new Scope(null));
+        RuntimeException serialException = null;
+        try {
+            serialAnalyzer.visit(serial);
+        } catch (RuntimeException e) {
+            serialException = e;
+        }
+        if (serialException == null) {
+            parallelAnalyzer.visitParallel(parallel, POOL);
+            Assertions.assertEquals(serial, parallel);
+            serial.getFunctions().forEach(fun -> Assertions.assertEquals(fun.getFunction(), parallelAnalyzer.scope.lookupFunction(fun.getName(), fun.getParameters().size())));
+        } else {
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> parallelAnalyzer.visitParallel(parallel, POOL));
+            Assertions.assertEquals(serialException.getMessage(), exception.getMessage());
+        }
+    }
+
+    private static Stream<Arguments> testSourceParallel() {
+        return Stream.of(
+                // VAR x: Integer = 1; FUN f(): Integer DO RETURN x; END FUN main(): Integer DO print(f()); RETURN f(); END
+                Arguments.of("Calls", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(new Ast.Global("x", "Integer", true, Optional.of(new Ast.Expression.Literal(BigInteger.ONE)))),
+                        Arrays.asList(
+                                function("f", new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "x"))),
+                                function("main",
+                                        new Ast.Statement.Expression(new Ast.Expression.Function("print", Arrays.asList(call("f")))),
+                                        new Ast.Statement.Return(call("f")))
+                        )
+                )),
+                // FUN main(): Integer DO RETURN main(); END
+                Arguments.of("Recursion", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(function("main", new Ast.Statement.Return(call("main"))))
+                )),
+                // FUN main(): Integer DO RETURN f(); END FUN f(): Integer DO RETURN 1; END
+                Arguments.of("Forward Reference", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(
+                                function("main", new Ast.Statement.Return(call("f"))),
+                                function("f", new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ONE)))
+                        )
+                )),
+                // FUN f(): Integer DO RETURN TRUE; END FUN main(): Integer DO RETURN 0; END
+                Arguments.of("Invalid Body", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(
+                                function("f", new Ast.Statement.Return(new Ast.Expression.Literal(true))),
+                                function("main", new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ZERO)))
+                        )
+                )),
+                // FUN main(): Integer DO RETURN 0; END FUN main(): Integer DO RETURN 0; END
+                Arguments.of("Duplicate Function", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(
+                                function("main", new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ZERO))),
+                                function("main", new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ZERO)))
+                        )
+                )),
+                // FUN f(): Integer DO RETURN 0; END
+                Arguments.of("Missing Main", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(function("f", new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ZERO))))
+                ))
+        );
+    }
+
     @ParameterizedTest(name = "{0}")
     @MethodSource
     public void testGlobal(String test, Ast.Global ast, Ast.Global expected) {
@@ -542,6 +621,17 @@ public final class AnalyzerTests {
         return analyzer;
     }
 
+    /**
+     * Returns a function with no parameters returning Integer.
+     */
+    private static Ast.Function function(String name, Ast.Statement... statements) {
+        return new Ast.Function(name, Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(statements));
+    }
+
+    private static Ast.Expression.Function call(String name) {
+        return new Ast.Expression.Function(name, Arrays.asList());
+    }
+
     /**
      * Runs a callback on the given value, used for inline initialization.
      */
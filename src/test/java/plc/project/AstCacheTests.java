@@ -0,0 +1,63 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+final class AstCacheTests {
+
+    private static final String SOURCE = "VAR x = 1;\nLIST xs = [1, 2.5, 'c', \"s\"];\nFUN main(a) DO\n    IF x < 2 DO x = x + 1; ELSE xs[0] = NIL; END\nEND";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLoad() throws IOException {
+        AstCache cache = new AstCache(directory);
+        Ast.Source expected = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        Assertions.assertEquals(Optional.empty(), cache.get(SOURCE));
+        Assertions.assertEquals(expected, cache.load(SOURCE));
+        Assertions.assertEquals(Optional.of(expected), cache.get(SOURCE));
+        Assertions.assertEquals(Optional.empty(), cache.get(SOURCE + " "));
+    }
+
+    @Test
+    void testStale() throws IOException {
+        AstCache cache = new AstCache(directory);
+        cache.load(SOURCE);
+        Path file = file(directory);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, AstCache.VERSION + 1);
+        Files.write(file, bytes);
+        Assertions.assertEquals(Optional.empty(), cache.get(SOURCE));
+        cache.load(SOURCE);
+        Assertions.assertTrue(cache.get(SOURCE).isPresent());
+    }
+
+    @Test
+    void testCorrupt() throws IOException {
+        AstCache cache = new AstCache(directory);
+        cache.load(SOURCE);
+        Path file = file(directory);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        Assertions.assertEquals(Optional.empty(), cache.get(SOURCE));
+        Files.write(file, new byte[0]);
+        Assertions.assertEquals(Optional.empty(), cache.get(SOURCE));
+    }
+
+    private static Path file(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".ast")).findFirst().orElseThrow();
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Standard JUnit5 parameterized tests. See the RegexTests file from Homework 1
+ * or the LexerTests file from the last project part for more information.
+ */
+final class ExpressionFactoryTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testIntern(String test, String input) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        ExpressionFactory factory = new ExpressionFactory();
+        Ast.Source interned = factory.intern(source);
+        Assertions.assertEquals(source, interned);
+        Assertions.assertEquals(source.hashCode(), interned.hashCode());
+        Assertions.assertEquals(interned, factory.intern(source));
+    }
+
+    private static Stream<Arguments> testIntern() {
+        return Stream.of(
+                Arguments.of("Globals", "VAR x = 1; VAL y = x + 1; LIST list = [x + 1, 'c', \"string\"];"),
+                Arguments.of("Statements", "FUN main(a, b) DO y = f(a[b + 1], 2.5); y = a * b; " +
+                        "IF a == b DO f(a); ELSE f(b); END WHILE a < b DO a = a + 1; END " +
+                        "SWITCH a CASE 1: f(a); DEFAULT f(NIL); END END")
+        );
+    }
+
+    @Test
+    void testSharing() {
+        ExpressionFactory factory = new ExpressionFactory();
+        Ast.Expression x = factory.access(Optional.empty(), "x");
+        Ast.Expression sum = factory.binary("+", x, factory.literal(BigInteger.ONE));
+        Assertions.assertSame(sum, factory.binary("+", factory.access(Optional.empty(), "x"), factory.literal(BigInteger.ONE)));
+        Assertions.assertSame(factory.function("f", Arrays.asList(sum, x)), factory.function("f", Arrays.asList(sum, x)));
+        Assertions.assertNotSame(sum, factory.binary("-", x, factory.literal(BigInteger.ONE)));
+        Assertions.assertEquals(5, factory.size());
+
+        Ast.Expression parsed = new Parser(new Lexer("f(x + 1, x)").lex()).parseExpression();
+        Assertions.assertSame(factory.function("f", Arrays.asList(sum, x)), factory.intern(parsed));
+        Assertions.assertEquals(parsed.hashCode(), factory.intern(parsed).hashCode());
+    }
+
+    @Test
+    void testAnalyzeShared() {
+        Ast.Source source = new Ast.Source(
+                Arrays.asList(new Ast.Global("x", "Integer", true, Optional.of(new Ast.Expression.Literal(BigInteger.ONE)))),
+                Arrays.asList(new Ast.Function("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                        new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "x"))
+                )))
+        );
+        Ast.Source interned = new ExpressionFactory().intern(source);
+        Assertions.assertThrows(IllegalStateException.class, () -> new Analyzer(new Scope(null)).visit(interned));
+        new Analyzer(new Scope(null)).visit(source);
+        Assertions.assertEquals(Environment.Type.INTEGER, source.getGlobals().get(0).getValue().get().getType());
+    }
+
+}
@@ -0,0 +1,106 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Standard JUnit5 parameterized tests. See the RegexTests file from Homework 1
+ * or the LexerTests file from the last project part for more information.
+ */
+final class FlatAstTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testRoundTrip(String test, Ast ast) {
+        Assertions.assertEquals(ast, FlatAst.of(ast).toAst());
+    }
+
+    @ParameterizedTest
+    @MethodSource("testRoundTrip")
+    void testSerialization(String test, Ast ast) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FlatAst.of(ast).write(new DataOutputStream(bytes));
+        Assertions.assertEquals(ast, FlatAst.read(ByteBuffer.wrap(bytes.toByteArray())).toAst());
+    }
+
+    private static Stream<Arguments> testRoundTrip() {
+        return Stream.of(
+                Arguments.of("Literals", new Ast.Expression.PlcList(Arrays.asList(
+                        new Ast.Expression.Literal(null),
+                        new Ast.Expression.Literal(true),
+                        new Ast.Expression.Literal(BigInteger.ONE),
+                        new Ast.Expression.Literal(new BigDecimal("1.50")),
+                        new Ast.Expression.Literal('c'),
+                        new Ast.Expression.Literal("string \u00e9\u4e2d")
+                ))),
+                Arguments.of("Expressions", new Ast.Expression.Binary("+",
+                        new Ast.Expression.Group(new Ast.Expression.Access(Optional.of(new Ast.Expression.Literal(BigInteger.ZERO)), "list")),
+                        new Ast.Expression.Function("f", Arrays.asList(new Ast.Expression.Access(Optional.empty(), "x")))
+                )),
+                Arguments.of("Statements", new Ast.Function("main", Arrays.asList("x"), Arrays.asList("Integer"), Optional.empty(), Arrays.asList(
+                        new Ast.Statement.Declaration("y", Optional.of("Integer"), Optional.empty()),
+                        new Ast.Statement.Declaration("z", Optional.of(new Ast.Expression.Literal(BigInteger.ONE))),
+                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "y"), new Ast.Expression.Access(Optional.empty(), "x")),
+                        new Ast.Statement.If(new Ast.Expression.Literal(true),
+                                Arrays.asList(new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.ONE))),
+                                Arrays.asList(new Ast.Statement.Expression(new Ast.Expression.Function("print", Arrays.asList())))),
+                        new Ast.Statement.Switch(new Ast.Expression.Access(Optional.empty(), "x"), Arrays.asList(
+                                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal(BigInteger.ONE)), Arrays.asList()),
+                                new Ast.Statement.Case(Optional.empty(), Arrays.asList(new Ast.Statement.Return(new Ast.Expression.Literal(null))))
+                        )),
+                        new Ast.Statement.While(new Ast.Expression.Literal(false), Arrays.asList())
+                ))),
+                Arguments.of("Source", new Ast.Source(
+                        Arrays.asList(
+                                new Ast.Global("x", "Integer", true, Optional.empty()),
+                                new Ast.Global("y", false, Optional.of(new Ast.Expression.Literal(BigInteger.ONE)))
+                        ),
+                        Arrays.asList(new Ast.Function("main", Arrays.asList(), Arrays.asList()))
+                ))
+        );
+    }
+
+    @Test
+    void testNodes() {
+        Ast ast = new Parser(new Lexer("VAR x = 1;\nFUN main() DO x = x + 1; END").lex()).parseSource();
+        FlatAst flat = FlatAst.of(ast);
+        int root = flat.getRoot();
+        Assertions.assertEquals(FlatAst.Kind.SOURCE, flat.getKind(root));
+        Assertions.assertEquals(1, flat.getData(root));
+        Assertions.assertEquals(2, flat.getChildCount(root));
+        int global = flat.getChild(root, 0);
+        Assertions.assertEquals("x", flat.getName(global));
+        Assertions.assertTrue(flat.getMutable(global));
+        int assignment = flat.getChild(flat.getChild(root, 1), 0);
+        Assertions.assertEquals(FlatAst.Kind.ASSIGNMENT, flat.getKind(assignment));
+        int binary = flat.getChild(assignment, 1);
+        Assertions.assertEquals("+", flat.getOperator(binary));
+        Assertions.assertSame(flat.getLiteral(flat.getChild(global, 0)), flat.getLiteral(flat.getChild(binary, 1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> flat.getOperator(global));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> flat.getChild(global, 1));
+    }
+
+    @Test
+    void testInvalidEncoding() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FlatAst.of(new Ast.Expression.Group(new Ast.Expression.Literal(BigInteger.ONE))).write(new DataOutputStream(bytes));
+        byte[] encoding = bytes.toByteArray();
+        // The group's only child, stored after the two child counts and data, refers to itself.
+        encoding[12 + 2 + 16 + 3] = 1;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FlatAst.read(ByteBuffer.wrap(encoding)));
+    }
+
+}
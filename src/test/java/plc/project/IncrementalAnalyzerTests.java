@@ -0,0 +1,165 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Standard JUnit5 parameterized tests. See the RegexTests file from Homework 1
+ * or the LexerTests file from the last project part for more information.
+ */
+final class IncrementalAnalyzerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testReplaceFunction(String test, int index, Supplier<Ast.Function> function, Integer checked) {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(null);
+        analyzer.analyze(source());
+        Assertions.assertEquals(5, analyzer.getChecked());
+        Ast.Source expected = source();
+        expected.getFunctions().set(index, function.get());
+        test(expected, checked, () -> analyzer.replaceFunction(index, function.get()), analyzer);
+    }
+
+    private static Stream<Arguments> testReplaceFunction() {
+        return Stream.of(
+                // FUN f(): Integer DO RETURN 5; END
+                Arguments.of("Same Signature", 0, (Supplier<Ast.Function>) () ->
+                        function("f", "Integer", new Ast.Statement.Return(literal(5))), 1),
+                // FUN f(): Decimal DO RETURN 1.0; END
+                Arguments.of("Changed Return Type", 0, (Supplier<Ast.Function>) () ->
+                        function("f", "Decimal", new Ast.Statement.Return(new Ast.Expression.Literal(new BigDecimal("1.0")))), 2),
+                // FUN k(): Integer DO RETURN x; END
+                Arguments.of("Renamed", 0, (Supplier<Ast.Function>) () ->
+                        function("k", "Integer", new Ast.Statement.Return(access("x"))), null),
+                // FUN h(): Integer DO RETURN main(); END
+                Arguments.of("Forward Reference", 2, (Supplier<Ast.Function>) () ->
+                        function("h", "Integer", new Ast.Statement.Return(call("main"))), null),
+                // FUN main(): Integer DO RETURN 2; END
+                Arguments.of("Duplicate Function", 2, (Supplier<Ast.Function>) () ->
+                        function("main", "Integer", new Ast.Statement.Return(literal(2))), null),
+                // FUN main(): Decimal DO RETURN 1.0; END
+                Arguments.of("Main Return Type", 3, (Supplier<Ast.Function>) () ->
+                        function("main", "Decimal", new Ast.Statement.Return(new Ast.Expression.Literal(new BigDecimal("1.0")))), null)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testReplaceGlobal(String test, Supplier<Ast.Global> global, Integer checked) {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(null);
+        analyzer.analyze(source());
+        Ast.Source expected = source();
+        expected.getGlobals().set(0, global.get());
+        test(expected, checked, () -> analyzer.replaceGlobal(0, global.get()), analyzer);
+    }
+
+    private static Stream<Arguments> testReplaceGlobal() {
+        return Stream.of(
+                // VAR x: Integer = 2;
+                Arguments.of("Same Type", (Supplier<Ast.Global>) () ->
+                        new Ast.Global("x", "Integer", true, Optional.of(literal(2))), 2),
+                // VAR x: Decimal = 1.0;
+                Arguments.of("Changed Type", (Supplier<Ast.Global>) () ->
+                        new Ast.Global("x", "Decimal", true, Optional.of(new Ast.Expression.Literal(new BigDecimal("1.0")))), null),
+                // VAR y: Integer = 1;
+                Arguments.of("Renamed", (Supplier<Ast.Global>) () ->
+                        new Ast.Global("y", "Integer", true, Optional.of(literal(1))), null),
+                // VAR x: Integer = f();
+                Arguments.of("Function Reference", (Supplier<Ast.Global>) () ->
+                        new Ast.Global("x", "Integer", true, Optional.of(call("f"))), null)
+        );
+    }
+
+    @Test
+    void testRecovery() {
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(null);
+        analyzer.analyze(source());
+        Assertions.assertThrows(RuntimeException.class, () -> analyzer.replaceFunction(0,
+                function("f", "Integer", new Ast.Statement.Return(new Ast.Expression.Literal(true)))));
+        // The source is analyzed again until it checks, then incrementally.
+        analyzer.replaceFunction(0, function("f", "Integer", new Ast.Statement.Return(literal(3))));
+        Assertions.assertEquals(5, analyzer.getChecked());
+        analyzer.replaceFunction(0, function("f", "Integer", new Ast.Statement.Return(literal(4))));
+        Assertions.assertEquals(1, analyzer.getChecked());
+        Ast.Source expected = source();
+        expected.getFunctions().set(0, function("f", "Integer", new Ast.Statement.Return(literal(4))));
+        new Analyzer(new Scope(null)).visit(expected);
+        Assertions.assertEquals(expected, analyzer.getSource());
+    }
+
+    /**
+     * Runs an edit, which is expected to throw a {@link RuntimeException} if
+     * and only if serial analysis of the expected source does, and checks the
+     * given number of declarations if {@code checked} is not null.
+     */
+    private static void test(Ast.Source expected, Integer checked, Runnable edit, IncrementalAnalyzer analyzer) {
+        RuntimeException exception = null;
+        try {
+            new Analyzer(new Scope(null)).visit(expected);
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+        if (exception == null) {
+            edit.run();
+            Assertions.assertEquals(expected, analyzer.getSource());
+            Assertions.assertEquals(checked.intValue(), analyzer.getChecked());
+            expected.getFunctions().forEach(fun -> Assertions.assertEquals(fun.getFunction(), analyzer.getScope().lookupFunction(fun.getName(), fun.getParameters().size())));
+        } else {
+            RuntimeException actual = Assertions.assertThrows(RuntimeException.class, edit::run);
+            Assertions.assertEquals(exception.getMessage(), actual.getMessage());
+        }
+    }
+
+    /**
+     * Returns a new source for:
+     *
+     * VAR x: Integer = 1;
+     * FUN f(): Integer DO RETURN x; END
+     * FUN g(): Integer DO print(f()); RETURN 0; END
+     * FUN h(): Integer DO RETURN 2; END
+     * FUN main(): Integer DO RETURN g(); END
+     */
+    private static Ast.Source source() {
+        List<Ast.Global> globals = new ArrayList<>(Arrays.asList(
+                new Ast.Global("x", "Integer", true, Optional.of(literal(1)))
+        ));
+        List<Ast.Function> functions = new ArrayList<>(Arrays.asList(
+                function("f", "Integer", new Ast.Statement.Return(access("x"))),
+                function("g", "Integer",
+                        new Ast.Statement.Expression(new Ast.Expression.Function("print", Arrays.asList(call("f")))),
+                        new Ast.Statement.Return(literal(0))),
+                function("h", "Integer", new Ast.Statement.Return(literal(2))),
+                function("main", "Integer", new Ast.Statement.Return(call("g")))
+        ));
+        return new Ast.Source(globals, functions);
+    }
+
+    private static Ast.Function function(String name, String returnType, Ast.Statement... statements) {
+        return new Ast.Function(name, Arrays.asList(), Arrays.asList(), Optional.of(returnType), Arrays.asList(statements));
+    }
+
+    private static Ast.Expression literal(int value) {
+        return new Ast.Expression.Literal(BigInteger.valueOf(value));
+    }
+
+    private static Ast.Expression access(String name) {
+        return new Ast.Expression.Access(Optional.empty(), name);
+    }
+
+    private static Ast.Expression call(String name) {
+        return new Ast.Expression.Function(name, Arrays.asList());
+    }
+
+}
@@ -6,12 +6,25 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 public class LexerTests {
 
+    /**
+     * Lexes chunks concurrently even on a single core.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
     @ParameterizedTest
     @MethodSource
     void testIdentifier(String test, String input, boolean success) {
@@ -136,6 +149,240 @@ public class LexerTests {
         Assertions.assertEquals(13, exception.getIndex());
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testDiagnostics(String test, String input, String errors, List<String> literals) {
+        Diagnostics diagnostics = new Diagnostics();
+        List<Token> tokens = new Lexer(input).lex(diagnostics);
+        Assertions.assertEquals(errors, diagnostics.toString());
+        Assertions.assertEquals(literals, tokens.stream().map(Token::getLiteral).toList());
+    }
+
+    private static Stream<Arguments> testDiagnostics() {
+        return Stream.of(
+                Arguments.of("Valid", "LET x = 5;", "[]", Arrays.asList("LET", "x", "=", "5", ";")),
+                Arguments.of("Invalid Escape", "x = \"\\q\"; y", "[Invalid escape sequence@6]", Arrays.asList("x", "=", ";", "y")),
+                Arguments.of("Multiple Errors", "'ab' x '' y @ z", "[Unterminated character literal@2, Invalid character literal@8, Expected identifier@13]", Arrays.asList("x", "y", "z")),
+                Arguments.of("Unterminated String", "x \"unterminated", "[Unterminated string literal@15]", Arrays.asList("x"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testStreaming(String test, String input, int capacity) {
+        List<Token> tokens = new ArrayList<>();
+        new Lexer(new StringReader(input), capacity).iterator().forEachRemaining(tokens::add);
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+    }
+
+    private static Stream<Arguments> testStreaming() {
+        return Stream.of(
+                Arguments.of("Example 1", "LET x = 5;", 4),
+                Arguments.of("Token Longer Than Window", "print(\"Hello, World!\", 123.456);", 2),
+                Arguments.of("Whitespace Across Windows", "a  \n\t b\r\n  -1 != 'c'", 3),
+                Arguments.of("Empty", "", 1)
+        );
+    }
+
+    @Test
+    void testStreamingException() {
+        ParseException exception = Assertions.assertThrows(ParseException.class,
+                () -> new Lexer(new StringReader("LET x = \"unterminated"), 4).iterator().forEachRemaining(token -> {}));
+        Assertions.assertEquals(21, exception.getIndex());
+    }
+
+    @Test
+    void testStreamingUnsupported() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new Lexer(new StringReader("x")).lexBuffer());
+        Assertions.assertThrows(IllegalStateException.class, () -> new Lexer(new StringReader("x")).lexBuffer(new TokenBuffer("")));
+        Assertions.assertThrows(IllegalStateException.class, () -> new Lexer(new StringReader("x")).lexParallel(POOL));
+        Assertions.assertThrows(IllegalStateException.class, () -> new Lexer(new StringReader("x")).relex(List.of(), 0, 0, 1));
+    }
+
+    @Test
+    void testTokenBuffer() {
+        String input = "LET x = 5;\nprint(\"Hello, World!\", -1.5, 'c');";
+        TokenBuffer buffer = new Lexer(input).lexBuffer();
+        Assertions.assertEquals(new Lexer(input).lex(), buffer);
+        Assertions.assertTrue(buffer.literalEquals(0, "LET"));
+        Assertions.assertEquals(Token.Type.STRING, buffer.getType(7));
+    }
+
+    @Test
+    void testReset() {
+        TokenBuffer buffer = new TokenBuffer("");
+        for (String input : Arrays.asList("LET x = 5;", "print(\"Hello, World!\");", "", "x")) {
+            Assertions.assertEquals(new Lexer(input).lex(), Lexer.local(input).lexBuffer(buffer));
+        }
+        Lexer lexer = new Lexer("LET x = 5;");
+        lexer.lex();
+        lexer.reset("x + y");
+        Assertions.assertEquals(new Lexer("x + y").lex(), lexer.lex());
+    }
+
+    @Test
+    void testKinds() {
+        List<Token> tokens = new Lexer("LET x = LETTER; x = DO; 1").lex();
+        Assertions.assertEquals(Token.Kind.LET, tokens.get(0).getKind());
+        Assertions.assertEquals(Token.Kind.IDENTIFIER, tokens.get(1).getKind());
+        Assertions.assertEquals(Token.Kind.IDENTIFIER, tokens.get(3).getKind());
+        Assertions.assertEquals(Token.Kind.DO, tokens.get(7).getKind());
+        Assertions.assertEquals(Token.Kind.INTEGER, tokens.get(9).getKind());
+        Assertions.assertSame(tokens.get(1).getLiteral(), tokens.get(5).getLiteral());
+    }
+
+    @Test
+    void testOperatorKinds() {
+        String input = "f(x[1], y) == z != ; : = ^ & !";
+        List<Token.Kind> expected = Arrays.asList(Token.Kind.IDENTIFIER, Token.Kind.LEFT_PAREN,
+                Token.Kind.IDENTIFIER, Token.Kind.LEFT_BRACKET, Token.Kind.INTEGER, Token.Kind.RIGHT_BRACKET,
+                Token.Kind.COMMA, Token.Kind.IDENTIFIER, Token.Kind.RIGHT_PAREN, Token.Kind.EQUAL_EQUAL,
+                Token.Kind.IDENTIFIER, Token.Kind.NOT_EQUAL, Token.Kind.SEMICOLON, Token.Kind.COLON,
+                Token.Kind.EQUALS, Token.Kind.CARET, Token.Kind.OPERATOR, Token.Kind.OPERATOR);
+        List<Token> tokens = new Lexer(input).lex();
+        TokenBuffer buffer = new Lexer(input).lexBuffer();
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i), tokens.get(i).getKind());
+            Assertions.assertEquals(expected.get(i), buffer.getKind(i));
+        }
+        Assertions.assertEquals(Token.Type.OPERATOR, tokens.get(1).getType());
+        Assertions.assertFalse(Token.Kind.LEFT_PAREN.isKeyword());
+    }
+
+    @Test
+    void testSymbols() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append("x").append(i).append(' ');
+        }
+        List<Token> tokens = new Lexer(input.toString() + input).lex();
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals("x" + i, tokens.get(i).getLiteral());
+            Assertions.assertSame(tokens.get(i).getLiteral(), tokens.get(i + 1000).getLiteral());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testParallel(String test, String input) {
+        Object expected, actual;
+        try {
+            expected = new Lexer(input).lex();
+        } catch (ParseException e) {
+            expected = e.getIndex();
+        }
+        try {
+            actual = new Lexer(input).lexParallel(POOL);
+        } catch (ParseException e) {
+            actual = e.getIndex();
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testParallel() {
+        String program = "LET x = \"a string with spaces\";\nprint(' ', x, -1.5, '\\'');\n".repeat(10000);
+        return Stream.of(
+                Arguments.of("Small", "LET x = 5;"),
+                Arguments.of("Large", program),
+                Arguments.of("Multiline String", program + "\"spans\n  lines\"\n" + program),
+                Arguments.of("Unterminated String", program + "\"unterminated " + program),
+                Arguments.of("Invalid Escape", program + "\"\\q\" " + program)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testRelex(String test, String input, int offset, int removed, String inserted) {
+        String edited = input.substring(0, offset) + inserted + input.substring(offset + removed);
+        List<Token> previous = new Lexer(input).lex();
+        Assertions.assertEquals(new Lexer(edited).lex(), new Lexer(edited).relex(previous, offset, removed, inserted.length()));
+    }
+
+    private static Stream<Arguments> testRelex() {
+        return Stream.of(
+                Arguments.of("Rename", "LET x = 5;\nprint(x);", 4, 1, "name"),
+                Arguments.of("Extend Identifier", "LET x = 5;", 5, 0, "yz"),
+                Arguments.of("Join Tokens", "LET x = ab cd;", 10, 1, ""),
+                Arguments.of("Negative Decimal", "x = - 0 .5;", 5, 1, ""),
+                Arguments.of("Open String", "LET x = 5;\nprint(x);", 4, 0, "\"x;\n\""),
+                Arguments.of("Shrink String", "LET x = \"a; b\";", 10, 2, ""),
+                Arguments.of("Append", "LET x = 5;", 10, 0, "\nx = x + 1;"),
+                Arguments.of("Empty", "", 0, 0, "LET x = 5;")
+        );
+    }
+
+    @Test
+    void testRelexChained() {
+        String input = "LET x = 5;\nprint(x);";
+        List<Token> tokens = new Lexer(input).lex();
+        // Each edit relexes the tokens relexed after the one before.
+        Object[][] edits = {{4, 1, "name"}, {0, 0, "VAR y = 1;\n"}, {22, 1, "\"a;\""}, {0, 11, ""}, {17, 0, "\n"}};
+        for (Object[] edit : edits) {
+            int offset = (int) edit[0];
+            int removed = (int) edit[1];
+            String inserted = (String) edit[2];
+            input = input.substring(0, offset) + inserted + input.substring(offset + removed);
+            tokens = new Lexer(input).relex(tokens, offset, removed, inserted.length());
+            Assertions.assertEquals(new Lexer(input).lex(), tokens);
+            // Moved tokens are kept, so reading one again returns the same token.
+            for (int i = 0; i < tokens.size(); i++) {
+                Assertions.assertSame(tokens.get(i), tokens.get(i));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testRelexTail(String test, int lines) {
+        String input = "LET x = 5;\nprint(x);\n".repeat(lines);
+        List<Token> lexed = new Lexer(input).lex();
+        int[] reads = {0};
+        List<Token> previous = new AbstractList<Token>() {
+            @Override
+            public Token get(int index) {
+                reads[0]++;
+                return lexed.get(index);
+            }
+
+            @Override
+            public int size() {
+                return lexed.size();
+            }
+        };
+        String edited = input.substring(0, 4) + "name" + input.substring(5);
+        List<Token> tokens = new Lexer(edited).relex(previous, 4, 1, 4);
+        // A binary search and the tokens around the edit, not the tail.
+        Assertions.assertTrue(reads[0] <= 40, "Read " + reads[0] + " previous tokens.");
+        Assertions.assertEquals(new Lexer(edited).lex(), tokens);
+    }
+
+    private static Stream<Arguments> testRelexTail() {
+        return Stream.of(
+                Arguments.of("Short", 10),
+                Arguments.of("Long", 100_000)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testMapped(String test, String input) throws IOException {
+        Path path = Files.createTempFile("lexer", ".plc");
+        try {
+            Files.write(path, input.getBytes(StandardCharsets.UTF_8));
+            Assertions.assertEquals(new Lexer(input).lex(), Lexer.map(path).lex());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static Stream<Arguments> testMapped() {
+        return Stream.of(
+                Arguments.of("Ascii", "LET x = 5;\nprint(\"Hello, World!\");"),
+                Arguments.of("Non-Ascii", "print(\"caf\u00e9\", 'x');"),
+                Arguments.of("Empty", "")
+        );
+    }
+
     /**
      * Tests that lexing the input through {@link Lexer#lexToken()} produces a
      * single token with the expected type and literal matching the input.
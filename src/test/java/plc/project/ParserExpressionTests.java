@@ -96,6 +96,18 @@ final class ParserExpressionTests {
                 Arguments.of("Escape Character",
                         Arrays.asList(new Token(Token.Type.STRING, "\"Hello,\\nWorld!\"", 0)),
                         new Ast.Expression.Literal("Hello,\nWorld!")
+                ),
+                Arguments.of("Escaped Backslash",
+                        Arrays.asList(new Token(Token.Type.STRING, "\"C:\\\\new\\\"\"", 0)),
+                        new Ast.Expression.Literal("C:\\new\"")
+                ),
+                Arguments.of("Escape Character Literal",
+                        Arrays.asList(new Token(Token.Type.CHARACTER, "'\\''", 0)),
+                        new Ast.Expression.Literal('\'')
+                ),
+                Arguments.of("Large Integer Literal",
+                        Arrays.asList(new Token(Token.Type.INTEGER, "-123456789012345678901234567890", 0)),
+                        new Ast.Expression.Literal(new BigInteger("-123456789012345678901234567890"))
                 )
         );
     }
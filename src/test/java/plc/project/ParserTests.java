@@ -6,11 +6,14 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -20,6 +23,11 @@ import java.util.stream.Stream;
  */
 final class ParserTests {
 
+    /**
+     * Parses functions concurrently even on a single core.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
     @ParameterizedTest
     @MethodSource
     void testSource(String test, List<Token> tokens, Ast.Source expected) {
@@ -503,6 +511,238 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testTokenBuffer() {
+        String input = "VAR first = 1;\n" +
+                "FUN main() DO\n" +
+                "    WHILE first != 10 DO\n" +
+                "        print(first);\n" +
+                "        first = first + 1;\n" +
+                "    END\n" +
+                "END";
+        Assertions.assertEquals(
+                new Parser(new Lexer(input).lex()).parseSource(),
+                new Parser(new Lexer(input).lexBuffer()).parseSource()
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testParallel(String test, String input) {
+        Object expected, actual;
+        try {
+            expected = new Parser(new Lexer(input).lex()).parseSource();
+        } catch (ParseException e) {
+            expected = e.getIndex();
+        }
+        try {
+            actual = new Parser(new Lexer(input).lex()).parseSourceParallel(POOL);
+        } catch (ParseException e) {
+            actual = e.getIndex();
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testParallel() {
+        String functions = "FUN f(x) DO\n    IF x DO\n        WHILE x DO x = x + 1; END\n    ELSE\n        print(x);\n    END\nEND\n".repeat(100);
+        return Stream.of(
+                Arguments.of("Functions", "VAR x = 1;\n" + functions + "FUN main() DO f(x); END"),
+                Arguments.of("Missing End", functions + "FUN g() DO\n    x = 1;\n" + functions),
+                Arguments.of("Extra End", functions + "FUN g() DO x = 1; END END\n" + functions),
+                Arguments.of("Global After Functions", functions + "VAR y = 2;\n" + functions),
+                Arguments.of("Invalid Statement", functions + "FUN g() DO x = ; END\n" + functions)
+        );
+    }
+
+    @Test
+    void testParallelUnsupported() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new Parser(new Lexer("FUN main() DO END").lexBuffer()).parseSourceParallel(POOL));
+        Assertions.assertThrows(IllegalStateException.class, () -> new Parser(new Lexer("FUN main() DO END")).parseSourceParallel(POOL));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testPipelined(String test, String input) {
+        Object expected, actual;
+        try {
+            expected = new Parser(new Lexer(input).lex()).parseSource();
+        } catch (ParseException e) {
+            expected = e.getIndex();
+        }
+        try {
+            actual = new Parser(new Lexer(new StringReader(input), 4)).parseSource();
+        } catch (ParseException e) {
+            actual = e.getIndex();
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testPipelined() {
+        return Stream.of(
+                Arguments.of("Program", "VAR first = 1;\nFUN main() DO\n    WHILE first != 10 DO\n        print(first);\n        first = first + 1;\n    END\nEND"),
+                Arguments.of("Missing End", "FUN main() DO\n    first = first + 1;"),
+                Arguments.of("Missing Operand", "VAR x = 1 +"),
+                Arguments.of("Empty", "")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testIncremental(String test, String input, int offset, int removed, String inserted) {
+        String edited = input.substring(0, offset) + inserted + input.substring(offset + removed);
+        Object expected, actual;
+        try {
+            expected = new Parser(new Lexer(edited)).parseSource();
+        } catch (ParseException e) {
+            expected = e.getIndex();
+        }
+        try {
+            actual = new IncrementalParser(input).edit(offset, removed, inserted);
+        } catch (ParseException e) {
+            actual = e.getIndex();
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testIncremental() {
+        String input = "VAR x = 1;\nFUN f() DO x = x + 1; END\nFUN g() DO x = x * 2; END\n";
+        return Stream.of(
+                Arguments.of("Edit Function", input, 56, 1, "3"),
+                Arguments.of("Edit Global", input, 8, 1, "3"),
+                Arguments.of("Insert Function", input, 37, 0, "FUN h() DO END\n"),
+                Arguments.of("Remove Function", input, 11, 26, ""),
+                Arguments.of("Join Functions", input, 36, 1, ""),
+                Arguments.of("Remove End", input, 33, 3, ""),
+                Arguments.of("Global After Functions", input, 63, 0, "VAR y = 2;"),
+                Arguments.of("Append", input, 63, 0, "FUN h() DO END")
+        );
+    }
+
+    @Test
+    void testIncrementalReuse() {
+        IncrementalParser parser = new IncrementalParser("VAR x = 1;\nFUN f() DO x = x + 1; END\nFUN g() DO x = x * 2; END\n");
+        Ast.Source previous = parser.getSource();
+        Ast.Source source = parser.edit(31, 0, " + 2");
+        Assertions.assertSame(previous.getGlobals().get(0), source.getGlobals().get(0));
+        Assertions.assertNotSame(previous.getFunctions().get(0), source.getFunctions().get(0));
+        Assertions.assertSame(previous.getFunctions().get(1), source.getFunctions().get(1));
+        Assertions.assertEquals(Optional.of(source.getFunctions().get(1)), parser.getDeclaration(45));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testIterative(String test, String input) {
+        Object expected, actual;
+        try {
+            expected = new Parser(new Lexer(input).lex()).parseSource();
+        } catch (ParseException e) {
+            expected = e.getIndex();
+        }
+        try {
+            Parser parser = new Parser(new Lexer(input).lex());
+            parser.setIterative(true);
+            actual = parser.parseSource();
+        } catch (ParseException e) {
+            actual = e.getIndex();
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testIterative() {
+        return Stream.of(
+                Arguments.of("Program", "VAR x = 1;\nFUN main() DO\n    WHILE x < 10 DO\n        IF x == 5 DO print(x); ELSE x = f(x, xs[x - 1]) * 2 + 1; END\n        x = x + 1;\n    END\nEND"),
+                Arguments.of("Switch", "FUN main() DO SWITCH x CASE 1: f(); CASE 2: SWITCH y DEFAULT g(); END DEFAULT RETURN (x); END END"),
+                Arguments.of("Precedence", "VAR x = a || b < c + d * e - f / g;\nFUN main() DO END"),
+                Arguments.of("Trailing Comma", "FUN main() DO f(1, g(2,)); END"),
+                Arguments.of("Missing Operand", "FUN main() DO x = 1 + ; END"),
+                Arguments.of("Missing End", "FUN main() DO IF x DO WHILE y DO f(); END"),
+                Arguments.of("Missing Default", "FUN main() DO SWITCH x CASE 1: f(); END END"),
+                Arguments.of("Global In Block", "FUN main() DO IF x DO f(); END VAR y; END")
+        );
+    }
+
+    @Test
+    void testIterativeDepth() {
+        int depth = 100_000;
+        StringBuilder input = new StringBuilder("FUN main() DO ");
+        for (int i = 0; i < depth; i++) {
+            input.append("IF x DO ");
+        }
+        input.append("x = ");
+        for (int i = 0; i < depth; i++) {
+            input.append("f(x[");
+        }
+        input.append("x");
+        for (int i = 0; i < depth; i++) {
+            input.append("])");
+        }
+        input.append(";");
+        for (int i = 0; i < depth; i++) {
+            input.append(" END");
+        }
+        Parser parser = new Parser(new Lexer(input.append(" END").toString()).lex());
+        parser.setIterative(true);
+        Ast.Statement statement = parser.parseSource().getFunctions().get(0).getStatements().get(0);
+        for (int i = 0; i < depth; i++) {
+            statement = ((Ast.Statement.If) statement).getThenStatements().get(0);
+        }
+        Ast.Expression expression = ((Ast.Statement.Assignment) statement).getValue();
+        for (int i = 0; i < depth; i++) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ((Ast.Expression.Function) expression).getArguments().get(0);
+            expression = access.getOffset().get();
+        }
+        Assertions.assertEquals(new Ast.Expression.Access(Optional.empty(), "x"), expression);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testDiagnostics(String test, String input, String errors, List<String> declarations) {
+        Diagnostics diagnostics = new Diagnostics();
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource(diagnostics);
+        Assertions.assertEquals(errors, diagnostics.toString());
+        List<String> names = new ArrayList<>();
+        source.getGlobals().forEach(global -> names.add(global.getName()));
+        source.getFunctions().forEach(function -> names.add(function.getName() + ":" + function.getStatements().size()));
+        Assertions.assertEquals(declarations, names);
+    }
+
+    private static Stream<Arguments> testDiagnostics() {
+        return Stream.of(
+                Arguments.of("Valid", "VAR x = 1;\nFUN main() DO x = x + 1; END", "[]", Arrays.asList("x", "main:1")),
+                Arguments.of("Multiple Errors", "VAR x = ;\nVAR y = 1;\nFUN main() DO x = 1 + ; y = 2; END",
+                        "[Unknown VAR Error@8, Expected Operand@43]", Arrays.asList("y", "main:1")),
+                Arguments.of("Nested Block", "FUN main() DO IF x DO f(1, ); ELSE y = 1; END z = 1; END",
+                        "[Trailing Comma In Function Call@27]", Arrays.asList("main:2")),
+                Arguments.of("Compound Statement", "FUN main() DO WHILE DO x = 1; END y = 1; END FUN f() DO END",
+                        "[Unexpected Keyword@20]", Arrays.asList("main:1", "f:0")),
+                Arguments.of("Global After Functions", "FUN main() DO x = 1; END VAR y = 1; FUN f() DO END",
+                        "[Global After Functions@25]", Arrays.asList("main:1", "f:0")),
+                Arguments.of("Missing End", "FUN main() DO IF x DO y = 1; END VAR y = 1;\nFUN f() DO END",
+                        "[Unexpected VAR@33]", Arrays.asList("f:0"))
+        );
+    }
+
+    @Test
+    void testConstants() {
+        StringBuilder input = new StringBuilder("FUN main() DO f(1, 1.5, 'c', \"s\"");
+        for (int i = 0; i < 100; i++) {
+            input.append(", ").append(i).append(", 1.5, \"s\"");
+        }
+        Parser parser = new Parser(new Lexer(input.append("); END").toString()).lex());
+        List<Ast.Expression> arguments = ((Ast.Expression.Function) ((Ast.Statement.Expression) parser.parseSource()
+                .getFunctions().get(0).getStatements().get(0)).getExpression()).getArguments();
+        ConstantPool constants = parser.getConstants();
+        Assertions.assertEquals(103, constants.size());
+        Assertions.assertEquals(0, constants.lookup(BigInteger.ONE));
+        Assertions.assertEquals('c', constants.getConstant(2));
+        Assertions.assertEquals(-1, constants.lookup("missing"));
+        for (int i = 0; i < arguments.size(); i++) {
+            Object literal = ((Ast.Expression.Literal) arguments.get(i)).getLiteral();
+            Assertions.assertSame(constants.getConstant(constants.lookup(literal)), literal);
+        }
+        Assertions.assertSame(((Ast.Expression.Literal) arguments.get(1)).getLiteral(), ((Ast.Expression.Literal) arguments.get(5)).getLiteral());
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).
@@ -0,0 +1,183 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Standard JUnit5 parameterized tests. See the RegexTests file from Homework 1
+ * or the LexerTests file from the last project part for more information.
+ */
+final class ResolverTests {
+
+    @Test
+    void testSlots() {
+        // VAR g = 1;
+        // FUN f(a, b) DO LET x = g; IF a DO LET y = x; END LET z = y; END
+        Ast.Expression.Access g = access("g");
+        Ast.Expression.Access x = access("x");
+        Ast.Expression.Access y = access("y");
+        Ast.Statement.Declaration declareX = new Ast.Statement.Declaration("x", Optional.of(g));
+        Ast.Statement.Declaration declareY = new Ast.Statement.Declaration("y", Optional.of(x));
+        Ast.Statement.Declaration declareZ = new Ast.Statement.Declaration("z", Optional.of(y));
+        Ast.Function function = new Ast.Function("f", Arrays.asList("a", "b"), Arrays.asList(
+                declareX,
+                new Ast.Statement.If(access("a"), Arrays.asList(declareY), Arrays.asList()),
+                declareZ
+        ));
+        Ast.Global global = new Ast.Global("g", true, Optional.of(literal(1)));
+        new Resolver().visit(new Ast.Source(Arrays.asList(global), Arrays.asList(function)));
+
+        Assertions.assertEquals(0, global.getSlot());
+        Assertions.assertEquals(4, function.getFrameSize());
+        Assertions.assertEquals(2, declareX.getSlot());
+        Assertions.assertEquals(3, declareY.getSlot());
+        // The slot of y is reused after its block, and y is no longer declared.
+        Assertions.assertEquals(3, declareZ.getSlot());
+        Assertions.assertEquals(0, g.getSlot());
+        Assertions.assertTrue(g.isGlobal());
+        Assertions.assertEquals(2, x.getSlot());
+        Assertions.assertFalse(x.isGlobal());
+        Assertions.assertEquals(-1, y.getSlot());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testInterpret(String test, Supplier<Ast.Source> source, Object expected) {
+        Scope parent = new Scope(null);
+        parent.defineVariable("external", true, Environment.create(BigInteger.valueOf(41)));
+        if (expected != null) {
+            Assertions.assertEquals(expected, new Interpreter(parent).visit(source.get()).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> new Interpreter(parent).visit(source.get()));
+        }
+    }
+
+    private static Stream<Arguments> testInterpret() {
+        return Stream.of(
+                // VAR x = 1; FUN main() DO LET y = x; IF TRUE DO LET x = 10; y = y + x; END RETURN y + x; END
+                Arguments.of("Shadowing", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(new Ast.Global("x", true, Optional.of(literal(1)))),
+                        Arrays.asList(main(
+                                new Ast.Statement.Declaration("y", Optional.of(access("x"))),
+                                new Ast.Statement.If(new Ast.Expression.Literal(true), Arrays.asList(
+                                        new Ast.Statement.Declaration("x", Optional.of(literal(10))),
+                                        new Ast.Statement.Assignment(access("y"), binary("+", access("y"), access("x")))
+                                ), Arrays.asList()),
+                                new Ast.Statement.Return(binary("+", access("y"), access("x")))
+                        ))
+                ), BigInteger.valueOf(12)),
+                // FUN main() DO LET i = 0; LET sum = 0; WHILE i < 3 DO LET next = sum + i; sum = next; i = i + 1; END RETURN sum; END
+                Arguments.of("Loop Declaration", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(main(
+                                new Ast.Statement.Declaration("i", Optional.of(literal(0))),
+                                new Ast.Statement.Declaration("sum", Optional.of(literal(0))),
+                                new Ast.Statement.While(binary("<", access("i"), literal(3)), Arrays.asList(
+                                        new Ast.Statement.Declaration("next", Optional.of(binary("+", access("sum"), access("i")))),
+                                        new Ast.Statement.Assignment(access("sum"), access("next")),
+                                        new Ast.Statement.Assignment(access("i"), binary("+", access("i"), literal(1)))
+                                )),
+                                new Ast.Statement.Return(access("sum"))
+                        ))
+                ), BigInteger.valueOf(3)),
+                // FUN main() DO LET x = 1; LET x = 2; RETURN x; END
+                Arguments.of("Redefinition", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(main(
+                                new Ast.Statement.Declaration("x", Optional.of(literal(1))),
+                                new Ast.Statement.Declaration("x", Optional.of(literal(2))),
+                                new Ast.Statement.Return(access("x"))
+                        ))
+                ), null),
+                // FUN main() DO SWITCH 2 CASE 1: LET x = 1; CASE 2: LET x = 2; RETURN x; DEFAULT RETURN 0; END END
+                Arguments.of("Switch Cases", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(main(
+                                new Ast.Statement.Switch(literal(2), Arrays.asList(
+                                        new Ast.Statement.Case(Optional.of(literal(1)), Arrays.asList(
+                                                new Ast.Statement.Declaration("x", Optional.of(literal(1))))),
+                                        new Ast.Statement.Case(Optional.of(literal(2)), Arrays.asList(
+                                                new Ast.Statement.Declaration("x", Optional.of(literal(2))),
+                                                new Ast.Statement.Return(access("x")))),
+                                        new Ast.Statement.Case(Optional.empty(), Arrays.asList(
+                                                new Ast.Statement.Return(literal(0))))
+                                ))
+                        ))
+                ), BigInteger.valueOf(2)),
+                // FUN main() DO RETURN external + 1; END, with external = 41 in the parent scope
+                Arguments.of("Parent Scope", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(main(new Ast.Statement.Return(binary("+", access("external"), literal(1)))))
+                ), BigInteger.valueOf(42)),
+                // FUN f(a, b) DO RETURN a - b; END FUN main() DO RETURN f(5, 3); END
+                Arguments.of("Parameters", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(
+                                new Ast.Function("f", Arrays.asList("a", "b"), Arrays.asList(
+                                        new Ast.Statement.Return(binary("-", access("a"), access("b"))))),
+                                main(new Ast.Statement.Return(new Ast.Expression.Function("f", Arrays.asList(literal(5), literal(3)))))
+                        )
+                ), BigInteger.valueOf(2)),
+                // FUN f(a, a) DO RETURN a; END FUN main() DO RETURN f(1, 2); END
+                Arguments.of("Repeated Parameter", (Supplier<Ast.Source>) () -> new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(
+                                new Ast.Function("f", Arrays.asList("a", "a"), Arrays.asList(
+                                        new Ast.Statement.Return(access("a")))),
+                                main(new Ast.Statement.Return(new Ast.Expression.Function("f", Arrays.asList(literal(1), literal(2)))))
+                        )
+                ), null)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testInterned(String test, String input) {
+        Ast.Source parsed = new Parser(new Lexer(input).lex()).parseSource();
+        Ast.Source interned = new ExpressionFactory().intern(parsed);
+        Assertions.assertThrows(IllegalStateException.class, () -> new Resolver().visit(interned));
+        Assertions.assertThrows(IllegalStateException.class, () -> new Interpreter(new Scope(null)).visit(interned));
+        new Resolver().visit(parsed);
+        parsed.getFunctions().forEach(function -> Assertions.assertTrue(function.getFrameSize() >= 0));
+    }
+
+    private static Stream<Arguments> testInterned() {
+        return Stream.of(
+                // The shared access x is slot 1 in f and slot 0 in g.
+                Arguments.of("Different Slots",
+                        "FUN f(a, x) DO print(x); END FUN g(x) DO print(x); END FUN main() DO f(1, 2); g(5); END"),
+                // The shared access x is slot 0 in both, which is still rejected.
+                Arguments.of("Same Slots",
+                        "FUN f(x, a) DO print(x); END FUN g(x) DO print(x); END FUN main() DO f(1, 2); g(5); END"),
+                // The shared access x is a global in main and a parameter in f.
+                Arguments.of("Global And Local",
+                        "VAR x = 3; FUN f(x) DO print(x); END FUN main() DO print(x); f(4); END")
+        );
+    }
+
+    private static Ast.Function main(Ast.Statement... statements) {
+        return new Ast.Function("main", Arrays.asList(), Arrays.asList(statements));
+    }
+
+    private static Ast.Expression.Access access(String name) {
+        return new Ast.Expression.Access(Optional.empty(), name);
+    }
+
+    private static Ast.Expression literal(int value) {
+        return new Ast.Expression.Literal(BigInteger.valueOf(value));
+    }
+
+    private static Ast.Expression binary(String operator, Ast.Expression left, Ast.Expression right) {
+        return new Ast.Expression.Binary(operator, left, right);
+    }
+
+}